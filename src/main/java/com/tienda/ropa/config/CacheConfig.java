@@ -0,0 +1,39 @@
+package com.tienda.ropa.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+// La cache envuelve a la transacción: un acierto no abre conexión y los desalojos ocurren tras el commit
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class CacheConfig {
+
+    public static final String PRODUCTS_CACHE = "products";
+    public static final String CATEGORIES_CACHE = "categories";
+
+    @Value("${app.cache.entity-spec:maximumSize=5000,expireAfterWrite=10m,recordStats}")
+    private String entityCacheSpec;
+
+    @Bean
+    public CacheManager cacheManager() {
+        // Un valor leído antes de un desalojo no vuelve a entrar (ver EvictionGuardedCaffeineCache)
+        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager(PRODUCTS_CACHE, CATEGORIES_CACHE) {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                return new EvictionGuardedCaffeineCache(name, cache, isAllowNullValues());
+            }
+        };
+        caffeineCacheManager.setCacheSpecification(entityCacheSpec);
+        caffeineCacheManager.setAllowNullValues(false);
+
+        // Dentro de una transacción, put/evict se aplican solo después del commit
+        return new TransactionAwareCacheManagerProxy(caffeineCacheManager);
+    }
+}
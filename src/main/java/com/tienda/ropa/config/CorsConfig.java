@@ -42,7 +42,9 @@ public class CorsConfig {
             "Accept",
             "Origin",
             "Cache-Control",
-            "Pragma"
+            "Pragma",
+            "ETag",
+            "X-Catalog-Version"
         ));
         
         // IMPORTANTE: Aumentar el tiempo de cache para requests preflight
@@ -0,0 +1,89 @@
+package com.tienda.ropa.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// CaffeineCache que no deja en cache un valor leído antes de un desalojo. Sin esto, una
+// lectura que falla, carga la fila vieja y guarda después del commit + desalojo de una
+// escritura dejaría el valor viejo hasta que expire.
+// Cada desalojo avanza la generación de su clave; el put que sigue a un fallo del mismo hilo
+// se retira si la generación de esa clave cambió desde el fallo. Las generaciones van por
+// franjas (hash de la clave): desalojar otras claves no anula el relleno, salvo colisión de
+// franja, que solo cuesta un fallo más. clear() avanza todas. Los desalojos ya llegan tras
+// el commit porque TransactionAwareCacheManagerProxy envuelve a esta cache.
+public class EvictionGuardedCaffeineCache extends CaffeineCache {
+
+    private static final int STRIPES = 1024;
+
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    // Último fallo de lectura de cada hilo: clave y generación vista
+    private final ThreadLocal<Miss> lastMiss = new ThreadLocal<>();
+
+    public EvictionGuardedCaffeineCache(String name, Cache<Object, Object> cache, boolean allowNullValues) {
+        super(name, cache, allowNullValues);
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        long seen = generations.get(stripe(key));
+        Object value = super.lookup(key);
+        if (value == null) {
+            lastMiss.set(new Miss(key, seen));
+        }
+        return value;
+    }
+
+    // Se guarda y luego se comprueba: un desalojo entre ambos pasos también se detecta
+    @Override
+    public void put(Object key, Object value) {
+        super.put(key, value);
+        Miss miss = lastMiss.get();
+        if (miss != null && miss.key().equals(key)) {
+            lastMiss.remove();
+            if (miss.generation() != generations.get(stripe(key))) {
+                getNativeCache().invalidate(key);
+            }
+        }
+    }
+
+    // La generación avanza antes de borrar: un put que compruebe después lo ve
+    @Override
+    public void evict(Object key) {
+        generations.incrementAndGet(stripe(key));
+        super.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        generations.incrementAndGet(stripe(key));
+        return super.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        advanceAll();
+        super.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        advanceAll();
+        return super.invalidate();
+    }
+
+    private void advanceAll() {
+        for (int i = 0; i < STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+    }
+
+    private static int stripe(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    private record Miss(Object key, long generation) {
+    }
+}
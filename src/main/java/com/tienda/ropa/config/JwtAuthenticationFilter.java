@@ -1,15 +1,21 @@
 package com.tienda.ropa.config;
 
 import com.tienda.ropa.service.JwtService;
+import com.tienda.ropa.service.TokenRevocationService;
+import com.tienda.ropa.service.UserStatusService;
+import com.tienda.ropa.util.VerifiedToken;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -18,6 +24,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
@@ -25,9 +32,16 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
+    private final UserStatusService userStatusService;
+    private final TokenRevocationService tokenRevocationService;
     private final ApplicationContext applicationContext;
     private UserDetailsService userDetailsService;
 
+    // true: la autenticación se arma con los roles firmados en el token, sin cargar el usuario.
+    // Los tokens emitidos antes de incluir roles e id siguen pasando por la base.
+    @Value("${app.security.stateless-auth:true}")
+    private boolean statelessAuth;
+
     @Override
     protected void doFilterInternal(
             @NonNull HttpServletRequest request,
@@ -36,8 +50,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
 
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String username;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -45,31 +57,65 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         try {
-            jwt = authHeader.substring(7);
-            username = jwtService.extractUsername(jwt);
+            final String jwt = authHeader.substring(7);
 
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                // Lazy loading del UserDetailsService para evitar dependencia circular
-                if (userDetailsService == null) {
-                    userDetailsService = applicationContext.getBean(UserDetailsService.class);
-                }
-                
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);         
-                // Usar el método correcto de tu JwtService
-                if (jwtService.validateToken(jwt, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities()
-                    );
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                // Única verificación de firma y expiración de la petición
+                VerifiedToken token = jwtService.verify(jwt);
+
+                // También para tokens servidos desde la cache de verificados
+                if (tokenRevocationService.isRevoked(token)) {
+                    log.warn("Token revocado para usuario: {}", token.username());
+                } else if (statelessAuth && token.hasAuthorizationClaims()) {
+                    authenticateFromClaims(request, token);
+                } else {
+                    authenticateFromDatabase(request, token);
                 }
             }
         } catch (Exception e) {
             log.error("Error procesando JWT token: {}", e.getMessage());
         }
-        
+
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private void authenticateFromClaims(HttpServletRequest request, VerifiedToken token) {
+        if (!userStatusService.isActive(token.userId())) {
+            log.warn("Token de usuario deshabilitado o bloqueado: {}", token.username());
+            return;
+        }
+        List<GrantedAuthority> authorities = token.roles().stream()
+                .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                .toList();
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                new JwtPrincipal(token.userId(), token.username()),
+                null,
+                authorities
+        );
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+    }
+
+    private void authenticateFromDatabase(HttpServletRequest request, VerifiedToken token) {
+        String username = token.username();
+        if (username == null) {
+            return;
+        }
+        // Lazy loading del UserDetailsService para evitar dependencia circular
+        if (userDetailsService == null) {
+            userDetailsService = applicationContext.getBean(UserDetailsService.class);
+        }
+
+        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        // El token ya está verificado: solo falta que sea de este usuario
+        if (username.equals(userDetails.getUsername())) {
+            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                    userDetails,
+                    null,
+                    userDetails.getAuthorities()
+            );
+            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authToken);
+        }
+    }
+}
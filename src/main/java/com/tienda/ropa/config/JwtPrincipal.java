@@ -0,0 +1,17 @@
+package com.tienda.ropa.config;
+
+import java.security.Principal;
+
+// Usuario autenticado a partir de los claims del token (sin cargar la entidad)
+public record JwtPrincipal(Long userId, String username) implements Principal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    @Override
+    public String toString() {
+        return username;
+    }
+}
@@ -0,0 +1,82 @@
+package com.tienda.ropa.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Garantiza la restricción única (product_id, category_id) de product_categories, de la que
+// dependen los INSERT ... ON CONFLICT de ProductCategoryRepositoryImpl. Con ddl-auto=update
+// Hibernate no consigue crearla sobre una tabla que ya tiene pares repetidos, y lo ignora en
+// silencio: aquí se eliminan los duplicados (se conserva la fila principal, o la más antigua)
+// y se crea. Si la restricción sigue sin existir, el arranque falla.
+// Se ejecuta al crear el bean, antes de que el servidor acepte peticiones.
+@Component
+@Slf4j
+public class ProductCategoryConstraintInitializer {
+
+    static final String CONSTRAINT_NAME = "uk_product_categories_product_category";
+
+    private static final String CONSTRAINT_EXISTS = """
+            SELECT COUNT(*) FROM pg_constraint
+            WHERE conname = ? AND conrelid = 'product_categories'::regclass
+            """;
+
+    private static final String DELETE_DUPLICATES = """
+            DELETE FROM product_categories pc
+            USING (
+                SELECT id, ROW_NUMBER() OVER (PARTITION BY product_id, category_id
+                                              ORDER BY is_primary DESC, id) AS position
+                FROM product_categories
+            ) ranked
+            WHERE pc.id = ranked.id AND ranked.position > 1
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // EntityManagerFactory solo se pide para que Hibernate haya creado o actualizado el esquema
+    public ProductCategoryConstraintInitializer(JdbcTemplate jdbcTemplate,
+                                                PlatformTransactionManager transactionManager,
+                                                EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void ensureUniqueConstraint() {
+        if (constraintExists()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Varias instancias arrancando a la vez: solo una limpia y crea la restricción
+                jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock(hashtext(?))", Object.class, CONSTRAINT_NAME);
+                if (constraintExists()) {
+                    return;
+                }
+                int removed = jdbcTemplate.update(DELETE_DUPLICATES);
+                if (removed > 0) {
+                    log.warn("Eliminadas {} relaciones producto-categoría duplicadas", removed);
+                }
+                jdbcTemplate.execute("ALTER TABLE product_categories ADD CONSTRAINT " + CONSTRAINT_NAME
+                        + " UNIQUE (product_id, category_id)");
+                log.info("Restricción {} creada en product_categories", CONSTRAINT_NAME);
+            });
+        } catch (Exception e) {
+            throw new IllegalStateException("No se pudo crear la restricción " + CONSTRAINT_NAME
+                    + " en product_categories: " + e.getMessage(), e);
+        }
+        if (!constraintExists()) {
+            throw new IllegalStateException("Falta la restricción " + CONSTRAINT_NAME + " en product_categories");
+        }
+    }
+
+    private boolean constraintExists() {
+        Long count = jdbcTemplate.queryForObject(CONSTRAINT_EXISTS, Long.class, CONSTRAINT_NAME);
+        return count != null && count > 0;
+    }
+}
@@ -53,7 +53,9 @@ public class SecurityConfig {
                         .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
                         .requestMatchers("/error").permitAll()
                         .requestMatchers("/health/**").permitAll()
-                        .requestMatchers("/actuator/**").permitAll()
+                        .requestMatchers("/actuator/health/**", "/actuator/info").permitAll()
+                        // Métricas de caches, Hibernate y JVM: solo administradores
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         
                         // Endpoints de productos (lectura para usuarios, escritura para admins)
                         .requestMatchers("GET", "/api/products/**").hasAnyRole("USER", "ADMIN")
@@ -2,11 +2,15 @@ package com.tienda.ropa.controller;
 
 import com.tienda.ropa.dto.AuthResponse;
 import com.tienda.ropa.dto.LoginRequest;
+import com.tienda.ropa.dto.RefreshTokenRequest;
 import com.tienda.ropa.dto.RegisterRequest;
 import com.tienda.ropa.model.Role;
 import com.tienda.ropa.model.User;
+import com.tienda.ropa.service.RefreshTokenService;
+import com.tienda.ropa.service.TokenRevocationService;
 import com.tienda.ropa.service.UserService;
 import com.tienda.ropa.util.JwtUtil;
+import com.tienda.ropa.util.VerifiedToken;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -19,6 +23,7 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
@@ -39,6 +44,8 @@ public class AuthController {
     private final AuthenticationManager authenticationManager;
     private final UserService userService;
     private final JwtUtil jwtUtil;
+    private final TokenRevocationService tokenRevocationService;
+    private final RefreshTokenService refreshTokenService;
 
     // MEJORADO: Códigos configurables desde properties
     @Value("${app.admin-codes:TIENDA2024,MiTienda_Admin_2024#,CATALOGO_ADMIN_2024!}")
@@ -69,12 +76,14 @@ public ResponseEntity<?> login(@Valid @RequestBody LoginRequest loginRequest) {
 
         // Cargar detalles del usuario
         UserDetails userDetails = userService.loadUserByUsername(loginRequest.getUsername());
-        String token = jwtUtil.generateToken(userDetails);
 
         // Obtener usuario completo
         User user = userService.getUserByUsername(loginRequest.getUsername())
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
+        // Roles e id van firmados en el token
+        String token = jwtUtil.generateToken(userDetails, user.getId());
+
         // CORRECCIÓN: Obtener el rol correctamente
         String role = user.getRoles().stream()
                 .map(r -> r.getName().name()) // Esto devuelve "ROLE_ADMIN" o "ROLE_USER"
@@ -83,6 +92,7 @@ public ResponseEntity<?> login(@Valid @RequestBody LoginRequest loginRequest) {
 
         AuthResponse authResponse = AuthResponse.builder()
                 .token(token)
+                .refreshToken(refreshTokenService.issue(user.getId()))
                 .username(user.getUsername())
                 .email(user.getEmail())
                 .role(role) 
@@ -163,7 +173,7 @@ public ResponseEntity<?> login(@Valid @RequestBody LoginRequest loginRequest) {
             );
 
             UserDetails userDetails = userService.loadUserByUsername(user.getUsername());
-            String token = jwtUtil.generateToken(userDetails);
+            String token = jwtUtil.generateToken(userDetails, user.getId());
 
             String role = user.getRoles().stream()
                     .map(r -> r.getName().name())
@@ -172,6 +182,7 @@ public ResponseEntity<?> login(@Valid @RequestBody LoginRequest loginRequest) {
 
             AuthResponse authResponse = AuthResponse.builder()
                     .token(token)
+                    .refreshToken(refreshTokenService.issue(user.getId()))
                     .username(user.getUsername())
                     .email(user.getEmail())
                     .role(role)
@@ -199,10 +210,11 @@ public ResponseEntity<?> login(@Valid @RequestBody LoginRequest loginRequest) {
                 token = token.substring(7);
             }
 
-            String username = jwtUtil.getUsernameFromToken(token);
+            VerifiedToken verified = jwtUtil.verify(token);
+            String username = verified.username();
             UserDetails userDetails = userService.loadUserByUsername(username);
 
-            if (jwtUtil.validateToken(token, userDetails)) {
+            if (!tokenRevocationService.isRevoked(verified) && jwtUtil.validateToken(token, userDetails)) {
                 User user = userService.getUserByUsername(username)
                         .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
@@ -230,6 +242,93 @@ public ResponseEntity<?> login(@Valid @RequestBody LoginRequest loginRequest) {
         }
     }
 
+    // Renovación sin contraseña: canjea el refresh token (rotativo) por un token de acceso nuevo.
+    // No pasa por el AuthenticationManager, así que no hay BCrypt en este camino.
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@Valid @RequestBody RefreshTokenRequest refreshRequest) {
+        try {
+            RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshRequest.getRefreshToken());
+
+            User user = userService.getUserById(rotation.userId())
+                    .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado"));
+            // Falla si la cuenta está deshabilitada o bloqueada
+            UserDetails userDetails = userService.loadUserByUsername(user.getUsername());
+            String token = jwtUtil.generateToken(userDetails, user.getId());
+
+            String role = user.getRoles().stream()
+                    .map(r -> r.getName().name())
+                    .findFirst()
+                    .orElse("ROLE_USER");
+
+            AuthResponse authResponse = AuthResponse.builder()
+                    .token(token)
+                    .refreshToken(rotation.refreshToken())
+                    .username(user.getUsername())
+                    .email(user.getEmail())
+                    .role(role)
+                    .userId(user.getId())
+                    .build();
+
+            log.debug("Token renovado para usuario: {}", user.getUsername());
+            return ResponseEntity.ok(authResponse);
+
+        } catch (IllegalArgumentException | UsernameNotFoundException e) {
+            log.warn("Renovación de token rechazada: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error renovando token: ", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error interno del servidor"));
+        }
+    }
+
+    // Cierre de sesión: el token de acceso queda revocado hasta su expiración y, si se envía,
+    // también la familia del refresh token. Basta con el refresh token: un cliente cuyo token
+    // de acceso ya expiró también puede cerrar la sesión.
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String token,
+                                    @RequestBody(required = false) RefreshTokenRequest refreshRequest) {
+        String refreshToken = refreshRequest != null ? refreshRequest.getRefreshToken() : null;
+        if (token == null && refreshToken == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(createErrorResponse("Se requiere el token de acceso o el refresh token"));
+        }
+        try {
+            VerifiedToken verified = null;
+            if (token != null) {
+                try {
+                    verified = jwtUtil.verify(token.startsWith("Bearer ") ? token.substring(7) : token);
+                } catch (Exception e) {
+                    // Sin refresh token no hay nada que revocar
+                    if (refreshToken == null) {
+                        throw e;
+                    }
+                }
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Sesión cerrada exitosamente");
+            if (verified != null) {
+                tokenRevocationService.revoke(verified);
+                response.put("username", verified.username());
+            }
+            if (refreshToken != null) {
+                // Sin token de acceso válido, poseer el refresh token basta para revocar su familia
+                refreshTokenService.revoke(refreshToken, verified != null ? verified.userId() : null);
+            }
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error cerrando sesión: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(createErrorResponse("Token inválido o expirado"));
+        }
+    }
+
     // Endpoint para obtener información del código 
     @GetMapping("/admin-code-info")
     public ResponseEntity<?> getAdminCodeInfo() {
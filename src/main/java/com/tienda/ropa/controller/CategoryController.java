@@ -2,11 +2,15 @@ package com.tienda.ropa.controller;
 
 import com.tienda.ropa.dto.CategoryDto;
 import com.tienda.ropa.model.Category;
+import com.tienda.ropa.service.CatalogSnapshotService;
+import com.tienda.ropa.service.CatalogVersionService;
 import com.tienda.ropa.service.CategoryService;
 import com.tienda.ropa.service.FileService;
+import com.tienda.ropa.util.CatalogResponseUtil;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -16,7 +20,7 @@ import org.springframework.web.multipart.MultipartFile;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/categories")
@@ -27,17 +31,29 @@ public class CategoryController {
 
     private final CategoryService categoryService;
     private final FileService fileService;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final CatalogVersionService catalogVersionService;
 
     // =================== ENDPOINTS DE LECTURA ===================
 
     @GetMapping
-    public ResponseEntity<List<CategoryDto>> getAllCategories() {
+    public ResponseEntity<?> getAllCategories(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            List<Category> categories = categoryService.getAllActiveCategories();
-            List<CategoryDto> categoryDtos = categories.stream()
-                    .map(categoryService::convertToDto)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(categoryDtos);
+            // Versión leída antes de cualquier consulta: si el cliente ya la tiene se responde 304
+            long version = catalogVersionService.getCurrentVersion();
+            String matchingEtag = CatalogResponseUtil.matchingEtag(ifNoneMatch, CatalogResponseUtil.CATEGORIES_RESOURCE, version);
+            if (matchingEtag != null) {
+                return CatalogResponseUtil.notModifiedResponse(matchingEtag, version);
+            }
+            // Respuesta precalculada mientras corresponda a la versión vigente del catálogo
+            Optional<CatalogSnapshotService.Snapshot> snapshot = catalogSnapshotService.getCategoriesSnapshot();
+            if (snapshot.isPresent()) {
+                return CatalogResponseUtil.snapshotResponse(snapshot.get(), CatalogResponseUtil.CATEGORIES_RESOURCE, acceptEncoding);
+            }
+            List<CategoryDto> categoryDtos = categoryService.getAllActiveCategories();
+            return CatalogResponseUtil.versionedResponse(categoryDtos, CatalogResponseUtil.CATEGORIES_RESOURCE, version);
         } catch (Exception e) {
             log.error("Error al obtener categorías: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -48,10 +64,7 @@ public class CategoryController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<CategoryDto>> getAllCategoriesAdmin() {
         try {
-            List<Category> categories = categoryService.getAllCategories();
-            List<CategoryDto> categoryDtos = categories.stream()
-                    .map(categoryService::convertToDto)
-                    .collect(Collectors.toList());
+            List<CategoryDto> categoryDtos = categoryService.getAllCategories();
             return ResponseEntity.ok(categoryDtos);
         } catch (Exception e) {
             log.error("Error al obtener todas las categorías: ", e);
@@ -76,10 +89,7 @@ public class CategoryController {
     @GetMapping("/search")
     public ResponseEntity<List<CategoryDto>> searchCategories(@RequestParam String name) {
         try {
-            List<Category> categories = categoryService.searchCategoriesByName(name);
-            List<CategoryDto> categoryDtos = categories.stream()
-                    .map(categoryService::convertToDto)
-                    .collect(Collectors.toList());
+            List<CategoryDto> categoryDtos = categoryService.searchCategoriesByName(name);
             return ResponseEntity.ok(categoryDtos);
         } catch (Exception e) {
             log.error("Error al buscar categorías: ", e);
@@ -371,18 +381,15 @@ public class CategoryController {
     public ResponseEntity<Map<String, Object>> getCategoryStats() {
         try {
             Map<String, Object> stats = new HashMap<>();
-            stats.put("totalCategories", categoryService.getAllCategories().size());
-            stats.put("activeCategories", categoryService.getAllActiveCategories().size());
+            Long totalCategories = categoryService.getTotalCategories();
+            stats.put("totalCategories", totalCategories);
+            stats.put("activeCategories", categoryService.getTotalActiveCategories());
             
             // Estadísticas adicionales
-            List<Category> allCategories = categoryService.getAllCategories();
-            long categoriesWithProducts = allCategories.stream()
-                    .mapToLong(cat -> categoryService.getProductCountByCategory(cat.getId()))
-                    .filter(count -> count > 0)
-                    .count();
+            Long categoriesWithProducts = categoryService.getCategoriesWithProductsCount();
             
             stats.put("categoriesWithProducts", categoriesWithProducts);
-            stats.put("emptyCategoriesCount", allCategories.size() - categoriesWithProducts);
+            stats.put("emptyCategoriesCount", totalCategories - categoriesWithProducts);
             
             return ResponseEntity.ok(stats);
         } catch (Exception e) {
@@ -0,0 +1,120 @@
+package com.tienda.ropa.controller;
+
+import com.tienda.ropa.dto.StockLevelDto;
+import com.tienda.ropa.service.InventoryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Historial de stock y stock a una fecha, leídos del diario de inventario
+@RestController
+@RequestMapping("/api/admin/inventory")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+@PreAuthorize("hasRole('ADMIN')")
+public class InventoryController {
+
+    private final InventoryService inventoryService;
+
+    @GetMapping("/products/{id}/movements")
+    public ResponseEntity<?> getProductMovements(
+            @PathVariable Long id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(inventoryService.getProductHistory(id, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error al obtener movimientos de stock del producto {}: ", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error interno del servidor"));
+        }
+    }
+
+    // ?at=2024-05-01T23:59:59
+    @GetMapping("/products/{id}/stock")
+    public ResponseEntity<?> getProductStockAt(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        try {
+            Optional<Integer> stock = inventoryService.getStockAt(id, at);
+            if (stock.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(createErrorResponse("Sin registros de stock para el producto a esa fecha"));
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("productId", id);
+            response.put("at", at);
+            response.put("stock", stock.get());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error al obtener stock del producto {} a {}: ", id, at, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error interno del servidor"));
+        }
+    }
+
+    @GetMapping("/stock")
+    public ResponseEntity<?> getInventoryAt(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        try {
+            List<StockLevelDto> levels = inventoryService.getInventoryAt(at);
+            Map<String, Object> response = new HashMap<>();
+            response.put("at", at);
+            response.put("products", levels);
+            response.put("totalProducts", levels.size());
+            response.put("totalStock", levels.stream().mapToLong(StockLevelDto::getStock).sum());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error al obtener inventario a {}: ", at, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error interno del servidor"));
+        }
+    }
+
+    // Instantánea manual (además de la programada en app.inventory.snapshot-cron)
+    @PostMapping("/snapshots")
+    public ResponseEntity<?> takeSnapshot() {
+        try {
+            int rows = inventoryService.takeSnapshot();
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("products", rows);
+            response.put("takenAt", inventoryService.getLatestSnapshotTime().orElse(null));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error al tomar instantánea de inventario: ", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error interno del servidor"));
+        }
+    }
+
+    private Map<String, Object> createErrorResponse(String message) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("success", false);
+        error.put("error", true);
+        error.put("message", message);
+        error.put("timestamp", java.time.LocalDateTime.now().format(
+                java.time.format.DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        return error;
+    }
+}
@@ -1,14 +1,17 @@
 package com.tienda.ropa.controller;
 
+import com.tienda.ropa.dto.BulkCategoryAssignmentDto;
 import com.tienda.ropa.model.Category;
-import com.tienda.ropa.model.Product;
+import com.tienda.ropa.service.JsonStreamService;
 import com.tienda.ropa.service.ProductCategoryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
@@ -23,6 +26,7 @@ import java.util.Set;
 public class ProductCategoryController {
 
     private final ProductCategoryService productCategoryService;
+    private final JsonStreamService jsonStreamService;
 
     @PostMapping("/product/{productId}/category/{categoryId}")
     @PreAuthorize("hasRole('ADMIN')")
@@ -98,14 +102,45 @@ public class ProductCategoryController {
         }
     }
 
+    // Se transmite fila por fila; con Accept: application/x-ndjson se envía un producto por línea
     @GetMapping("/category/{categoryId}/products")
-    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable Long categoryId) {
+    public ResponseEntity<StreamingResponseBody> getProductsByCategory(
+            @PathVariable Long categoryId,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return jsonStreamService.stream(() -> productCategoryService.streamProductsByCategory(categoryId),
+                JsonStreamService.wantsNdjson(accept));
+    }
+
+    // Asignación masiva: {"productIds": [...]} o {"filter": {"minPrice": ..., "inStock": true}}
+    @PostMapping("/category/{categoryId}/products")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> assignCategoryToProducts(@PathVariable Long categoryId,
+                                                      @RequestBody BulkCategoryAssignmentDto request) {
         try {
-            List<Product> products = productCategoryService.getProductsByCategory(categoryId);
-            return ResponseEntity.ok(products);
+            return ResponseEntity.ok(productCategoryService.assignCategoryToProducts(categoryId, request));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
-            log.error("Error obteniendo productos de la categoría: ", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            log.error("Error en asignación masiva de categoría: ", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error interno del servidor"));
+        }
+    }
+
+    @DeleteMapping("/category/{categoryId}/products")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> removeCategoryFromProducts(@PathVariable Long categoryId,
+                                                        @RequestBody BulkCategoryAssignmentDto request) {
+        try {
+            return ResponseEntity.ok(productCategoryService.removeCategoryFromProducts(categoryId, request));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error en remoción masiva de categoría: ", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error interno del servidor"));
         }
     }
 
@@ -156,10 +191,12 @@ public class ProductCategoryController {
 
     @GetMapping("/stats/products-most-categories")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<Object[]>> getProductsWithMostCategories() {
+    public ResponseEntity<?> getProductsWithMostCategories(@RequestParam(required = false) Integer limit) {
         try {
-            List<Object[]> stats = productCategoryService.getProductsWithMostCategories();
-            return ResponseEntity.ok(stats);
+            return ResponseEntity.ok(productCategoryService.getProductsWithMostCategories(limit));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             log.error("Error obteniendo estadísticas de productos: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -168,10 +205,12 @@ public class ProductCategoryController {
 
     @GetMapping("/stats/most-used-categories")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<Object[]>> getMostUsedCategories() {
+    public ResponseEntity<?> getMostUsedCategories(@RequestParam(required = false) Integer limit) {
         try {
-            List<Object[]> stats = productCategoryService.getMostUsedCategories();
-            return ResponseEntity.ok(stats);
+            return ResponseEntity.ok(productCategoryService.getMostUsedCategories(limit));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             log.error("Error obteniendo estadísticas de categorías: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -1,23 +1,40 @@
 package com.tienda.ropa.controller;
 
 import com.tienda.ropa.dto.ProductDto;
+import com.tienda.ropa.dto.ProductFilterDto;
+import com.tienda.ropa.dto.ProductImportResultDto;
+import com.tienda.ropa.dto.StockReservationDto;
+import com.tienda.ropa.dto.StockUpdateDto;
 import com.tienda.ropa.model.Product;
+import com.tienda.ropa.service.CatalogSnapshotService;
+import com.tienda.ropa.service.CatalogStatisticsService;
+import com.tienda.ropa.service.CatalogVersionService;
 import com.tienda.ropa.service.FileService;
+import com.tienda.ropa.service.JsonStreamService;
+import com.tienda.ropa.service.ProductImportService;
+import com.tienda.ropa.service.ProductStockService;
 import com.tienda.ropa.service.ProductService;
+import com.tienda.ropa.util.CatalogResponseUtil;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/products")
@@ -28,32 +45,66 @@ public class ProductController {
 
     private final ProductService productService;
     private final FileService fileService;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final CatalogVersionService catalogVersionService;
+    private final CatalogStatisticsService catalogStatisticsService;
+    private final JsonStreamService jsonStreamService;
+    private final ProductImportService productImportService;
+    private final ProductStockService productStockService;
 
     // =================== ENDPOINTS DE LECTURA ===================
 
     @GetMapping
-    public ResponseEntity<List<ProductDto>> getAllProducts() {
+    public ResponseEntity<?> getAllProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            List<Product> products = productService.getAllActiveProducts();
-            List<ProductDto> productDtos = products.stream()
-                    .map(productService::convertToDto)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(productDtos);
+            if (isPaged(cursor, size)) {
+                return ResponseEntity.ok(productService.getActiveProductsPage(cursor, size));
+            }
+            // Versión leída antes de cualquier consulta: si el cliente ya la tiene se responde 304
+            long version = catalogVersionService.getCurrentVersion();
+            String matchingEtag = CatalogResponseUtil.matchingEtag(ifNoneMatch, CatalogResponseUtil.PRODUCTS_RESOURCE, version);
+            if (matchingEtag != null) {
+                return CatalogResponseUtil.notModifiedResponse(matchingEtag, version);
+            }
+            // Respuesta precalculada mientras corresponda a la versión vigente del catálogo
+            Optional<CatalogSnapshotService.Snapshot> snapshot = catalogSnapshotService.getProductsSnapshot();
+            if (snapshot.isPresent()) {
+                return CatalogResponseUtil.snapshotResponse(snapshot.get(), CatalogResponseUtil.PRODUCTS_RESOURCE, acceptEncoding);
+            }
+            List<ProductDto> productDtos = productService.getAllActiveProducts();
+            return CatalogResponseUtil.versionedResponse(productDtos, CatalogResponseUtil.PRODUCTS_RESOURCE, version);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             log.error("Error al obtener productos: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    // Listado completo: se transmite fila por fila; con Accept: application/x-ndjson se envía
+    // un producto por línea. Con cursor o size se atiende en getAllProductsAdminPage.
+    @GetMapping(value = "/all", params = {"!cursor", "!size"})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> getAllProductsAdmin(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return jsonStreamService.stream(productService::streamAllProducts, JsonStreamService.wantsNdjson(accept));
+    }
+
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<ProductDto>> getAllProductsAdmin() {
+    public ResponseEntity<?> getAllProductsAdminPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         try {
-            List<Product> products = productService.getAllProducts();
-            List<ProductDto> productDtos = products.stream()
-                    .map(productService::convertToDto)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(productDtos);
+            return ResponseEntity.ok(productService.getAllProductsPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             log.error("Error al obtener todos los productos: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -75,13 +126,19 @@ public class ProductController {
     }
 
     @GetMapping("/category/{categoryId}")
-    public ResponseEntity<List<ProductDto>> getProductsByCategory(@PathVariable Long categoryId) {
+    public ResponseEntity<?> getProductsByCategory(
+            @PathVariable Long categoryId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         try {
-            List<Product> products = productService.getProductsByCategory(categoryId);
-            List<ProductDto> productDtos = products.stream()
-                    .map(productService::convertToDto)
-                    .collect(Collectors.toList());
+            if (isPaged(cursor, size)) {
+                return ResponseEntity.ok(productService.getProductsByCategoryPage(categoryId, cursor, size));
+            }
+            List<ProductDto> productDtos = productService.getProductsByCategory(categoryId);
             return ResponseEntity.ok(productDtos);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             log.error("Error al obtener productos por categoría: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -89,29 +146,95 @@ public class ProductController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<ProductDto>> searchProducts(@RequestParam String name) {
+    public ResponseEntity<?> searchProducts(
+            @RequestParam String name,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         try {
-            List<Product> products = productService.searchProductsByName(name);
-            List<ProductDto> productDtos = products.stream()
-                    .map(productService::convertToDto)
-                    .collect(Collectors.toList());
+            if (isPaged(cursor, size)) {
+                return ResponseEntity.ok(productService.searchProductsByNamePage(name, cursor, size));
+            }
+            List<ProductDto> productDtos = productService.searchProductsByName(name);
             return ResponseEntity.ok(productDtos);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             log.error("Error al buscar productos: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    // Filtro combinado: categoría (principal o secundaria), rango de precio, stock, estado
+    // y orden, paginado por cursor y con conteos por faceta en la misma consulta
+    @GetMapping("/filter")
+    public ResponseEntity<?> filterProducts(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(defaultValue = "true") Boolean active,
+            @RequestParam(defaultValue = ProductFilterDto.SORT_ID) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest request) {
+        try {
+            ProductFilterDto filter = new ProductFilterDto();
+            filter.setCategoryId(categoryId);
+            filter.setMinPrice(minPrice);
+            filter.setMaxPrice(maxPrice);
+            filter.setInStock(inStock);
+            // Solo los administradores pueden consultar productos inactivos
+            filter.setActive(request.isUserInRole("ADMIN") ? active : Boolean.TRUE);
+            filter.setSort(sort);
+            return ResponseEntity.ok(productService.filterProducts(filter, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error al filtrar productos: ", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // ?all=3,7&inStock=true → en las categorías 3 y 7 con stock; ?any=1,2,5 → en alguna de ellas
+    @GetMapping("/by-categories")
+    public ResponseEntity<?> getProductsByCategories(
+            @RequestParam(required = false) Set<Long> all,
+            @RequestParam(required = false) Set<Long> any,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(productService.getProductsByCategories(
+                    all != null ? all : Set.of(), any != null ? any : Set.of(), inStock, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error al obtener productos por categorías: ", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/price-range")
-    public ResponseEntity<List<ProductDto>> getProductsByPriceRange(
+    public ResponseEntity<?> getProductsByPriceRange(
             @RequestParam BigDecimal minPrice, 
-            @RequestParam BigDecimal maxPrice) {
+            @RequestParam BigDecimal maxPrice,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         try {
-            List<Product> products = productService.getProductsByPriceRange(minPrice, maxPrice);
-            List<ProductDto> productDtos = products.stream()
-                    .map(productService::convertToDto)
-                    .collect(Collectors.toList());
+            if (isPaged(cursor, size)) {
+                return ResponseEntity.ok(productService.getProductsByPriceRangePage(minPrice, maxPrice, cursor, size));
+            }
+            List<ProductDto> productDtos = productService.getProductsByPriceRange(minPrice, maxPrice);
             return ResponseEntity.ok(productDtos);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             log.error("Error al obtener productos por rango de precio: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -119,13 +242,18 @@ public class ProductController {
     }
 
     @GetMapping("/in-stock")
-    public ResponseEntity<List<ProductDto>> getProductsInStock() {
+    public ResponseEntity<?> getProductsInStock(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         try {
-            List<Product> products = productService.getProductsInStock();
-            List<ProductDto> productDtos = products.stream()
-                    .map(productService::convertToDto)
-                    .collect(Collectors.toList());
+            if (isPaged(cursor, size)) {
+                return ResponseEntity.ok(productService.getProductsInStockPage(cursor, size));
+            }
+            List<ProductDto> productDtos = productService.getProductsInStock();
             return ResponseEntity.ok(productDtos);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             log.error("Error al obtener productos en stock: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -134,13 +262,19 @@ public class ProductController {
 
     @GetMapping("/low-stock")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<ProductDto>> getLowStockProducts(@RequestParam(defaultValue = "5") Integer minStock) {
+    public ResponseEntity<?> getLowStockProducts(
+            @RequestParam(defaultValue = "5") Integer minStock,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         try {
-            List<Product> products = productService.getLowStockProducts(minStock);
-            List<ProductDto> productDtos = products.stream()
-                    .map(productService::convertToDto)
-                    .collect(Collectors.toList());
+            if (isPaged(cursor, size)) {
+                return ResponseEntity.ok(productService.getLowStockProductsPage(minStock, cursor, size));
+            }
+            List<ProductDto> productDtos = productService.getLowStockProducts(minStock);
             return ResponseEntity.ok(productDtos);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             log.error("Error al obtener productos con stock bajo: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -148,13 +282,18 @@ public class ProductController {
     }
 
     @GetMapping("/latest")
-    public ResponseEntity<List<ProductDto>> getLatestProducts() {
+    public ResponseEntity<?> getLatestProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         try {
-            List<Product> products = productService.getLatestProducts();
-            List<ProductDto> productDtos = products.stream()
-                    .map(productService::convertToDto)
-                    .collect(Collectors.toList());
+            if (isPaged(cursor, size)) {
+                return ResponseEntity.ok(productService.getLatestProductsPage(cursor, size));
+            }
+            List<ProductDto> productDtos = productService.getLatestProducts();
             return ResponseEntity.ok(productDtos);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             log.error("Error al obtener productos más recientes: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -162,13 +301,19 @@ public class ProductController {
     }
 
     @GetMapping("/sorted-by-price")
-    public ResponseEntity<List<ProductDto>> getProductsSortedByPrice(@RequestParam(defaultValue = "asc") String order) {
+    public ResponseEntity<?> getProductsSortedByPrice(
+            @RequestParam(defaultValue = "asc") String order,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
         try {
-            List<Product> products = productService.getProductsOrderByPrice(order);
-            List<ProductDto> productDtos = products.stream()
-                    .map(productService::convertToDto)
-                    .collect(Collectors.toList());
+            if (isPaged(cursor, size)) {
+                return ResponseEntity.ok(productService.getProductsOrderByPricePage(order, cursor, size));
+            }
+            List<ProductDto> productDtos = productService.getProductsOrderByPrice(order);
             return ResponseEntity.ok(productDtos);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
         } catch (Exception e) {
             log.error("Error al obtener productos ordenados por precio: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -282,7 +427,10 @@ public class ProductController {
             }
             
             log.info("Actualizando stock del producto {} a {}", id, newStock);
-            Product product = productService.updateStock(id, newStock);
+            productService.updateStock(id, newStock);
+            // La actualización no carga la categoría; la respuesta se arma con la lectura por id
+            Product product = productService.getProductById(id)
+                    .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
             ProductDto responseDto = productService.convertToDto(product);
             
             Map<String, Object> response = new HashMap<>();
@@ -303,6 +451,128 @@ public class ProductController {
         }
     }
 
+    // =================== IMPORTACIÓN MASIVA ===================
+
+    // Archivo CSV o XLSX con columnas name, description, price, stock, categoryId, imageUrl.
+    // Las filas inválidas no detienen la importación: se informan en el resumen.
+    @PostMapping("/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> importProducts(@RequestParam("file") MultipartFile file) {
+        try {
+            log.info("Importando productos desde {} ({} bytes)", file.getOriginalFilename(), file.getSize());
+            ProductImportResultDto result = productImportService.importProducts(file);
+            return ResponseEntity.ok(result);
+        } catch (RuntimeException e) {
+            log.error("Error al importar productos: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error interno al importar productos: ", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error interno del servidor"));
+        }
+    }
+
+    // Sincronización de stock: lista JSON de {id, stock} o CSV con columnas id,stock.
+    // Responde con los ids inexistentes y las filas rechazadas.
+    @PatchMapping(value = "/stock", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> updateStockBulk(@RequestBody List<StockUpdateDto> updates) {
+        try {
+            log.info("Actualización masiva de stock: {} pares", updates.size());
+            return ResponseEntity.ok(productStockService.updateStock(updates));
+        } catch (RuntimeException e) {
+            log.error("Error en la actualización masiva de stock: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error interno en la actualización masiva de stock: ", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error interno del servidor"));
+        }
+    }
+
+    @PatchMapping(value = "/stock", consumes = "text/csv")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> updateStockBulkCsv(InputStream csv) {
+        try {
+            log.info("Actualización masiva de stock desde CSV");
+            return ResponseEntity.ok(productStockService.updateStockFromCsv(csv));
+        } catch (RuntimeException e) {
+            log.error("Error en la actualización masiva de stock: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error interno en la actualización masiva de stock: ", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error interno del servidor"));
+        }
+    }
+
+    // =================== RESERVAS DE STOCK ===================
+
+    @PostMapping("/{id}/reserve")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> reserveStock(@PathVariable Long id, @RequestBody Map<String, Integer> request) {
+        try {
+            Integer stock = productStockService.reserve(id, request.get("quantity"));
+            return ResponseEntity.ok(createStockResponse(id, stock, "Stock reservado exitosamente"));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (RuntimeException e) {
+            log.error("Error al reservar stock del producto {}: {}", id, e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error interno al reservar stock del producto {}: ", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error interno del servidor"));
+        }
+    }
+
+    @PostMapping("/{id}/release")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> releaseStock(@PathVariable Long id, @RequestBody Map<String, Integer> request) {
+        try {
+            Integer stock = productStockService.release(id, request.get("quantity"));
+            return ResponseEntity.ok(createStockResponse(id, stock, "Stock liberado exitosamente"));
+        } catch (RuntimeException e) {
+            log.error("Error al liberar stock del producto {}: {}", id, e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error interno al liberar stock del producto {}: ", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error interno del servidor"));
+        }
+    }
+
+    // Reserva todas las líneas del carrito o ninguna (409 si alguna no alcanza)
+    @PostMapping("/reserve")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> reserveBasket(@RequestBody List<StockReservationDto> lines) {
+        try {
+            Map<Long, Integer> stock = productStockService.reserveAll(lines);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "Carrito reservado exitosamente");
+            response.put("stock", stock);
+            return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (RuntimeException e) {
+            log.error("Error al reservar carrito: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error interno al reservar carrito: ", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("Error interno del servidor"));
+        }
+    }
+
     // =================== ENDPOINTS DE IMÁGENES ===================
 
     @PostMapping("/{id}/image")
@@ -469,13 +739,8 @@ public class ProductController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Map<String, Object>> getProductStats() {
         try {
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("totalProducts", productService.getAllProducts().size());
-            stats.put("activeProducts", productService.getTotalActiveProducts());
-            stats.put("totalStock", productService.getTotalStock());
-            stats.put("lowStockProducts", productService.getLowStockProducts(5).size());
-            
-            return ResponseEntity.ok(stats);
+            // Contadores en memoria: no se consulta la base
+            return ResponseEntity.ok(catalogStatisticsService.getProductStats());
         } catch (Exception e) {
             log.error("Error al obtener estadísticas de productos: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -485,6 +750,20 @@ public class ProductController {
 
     // =================== MÉTODOS HELPER ===================
 
+    // Sin cursor ni tamaño se mantiene la respuesta completa para clientes antiguos
+    private boolean isPaged(String cursor, Integer size) {
+        return cursor != null || size != null;
+    }
+
+    private Map<String, Object> createStockResponse(Long productId, Integer stock, String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", message);
+        response.put("productId", productId);
+        response.put("stock", stock);
+        return response;
+    }
+
     private Map<String, Object> createErrorResponse(String message) {
         Map<String, Object> error = new HashMap<>();
         error.put("success", false);
@@ -1,21 +1,22 @@
 package com.tienda.ropa.controller;
 
 import com.tienda.ropa.dto.UserDto;
-import com.tienda.ropa.model.Role;
 import com.tienda.ropa.model.User;
+import com.tienda.ropa.service.CatalogStatisticsService;
+import com.tienda.ropa.service.JsonStreamService;
 import com.tienda.ropa.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/admin/users")
@@ -26,19 +27,14 @@ import java.util.stream.Collectors;
 public class UserController {
 
     private final UserService userService;
+    private final JsonStreamService jsonStreamService;
+    private final CatalogStatisticsService catalogStatisticsService;
 
+    // Se transmite fila por fila; con Accept: application/x-ndjson se envía un usuario por línea
     @GetMapping
-    public ResponseEntity<List<UserDto>> getAllUsers() {
-        try {
-            List<User> users = userService.getAllUsers();
-            List<UserDto> userDtos = users.stream()
-                    .map(this::convertToDto)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(userDtos);
-        } catch (Exception e) {
-            log.error("Error al obtener usuarios: ", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        }
+    public ResponseEntity<StreamingResponseBody> getAllUsers(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return jsonStreamService.stream(userService::streamAllUsers, JsonStreamService.wantsNdjson(accept));
     }
 
     @GetMapping("/{id}")
@@ -140,12 +136,8 @@ public class UserController {
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getUserStats() {
         try {
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("totalUsers", userService.getAllUsers().size());
-            stats.put("adminUsers", userService.countUsersByRole(Role.RoleName.ROLE_ADMIN));
-            stats.put("regularUsers", userService.countUsersByRole(Role.RoleName.ROLE_USER));
-            
-            return ResponseEntity.ok(stats);
+            // Contadores en memoria: no se consulta la base
+            return ResponseEntity.ok(catalogStatisticsService.getUserStats());
         } catch (Exception e) {
             log.error("Error al obtener estadísticas de usuarios: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -7,6 +7,8 @@ import lombok.Data;
 @Builder
 public class AuthResponse {
     private String token;
+    // Opaco y de un solo uso: POST /api/auth/refresh lo canjea por otro token de acceso
+    private String refreshToken;
     private String username;
     private String email;
     private String role;
@@ -0,0 +1,13 @@
+package com.tienda.ropa.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Productos a los que se asigna (o de los que se quita) una categoría: una lista de ids
+// o todos los que cumplan un filtro (mismos criterios que /api/products/filter), no ambos
+@Data
+public class BulkCategoryAssignmentDto {
+    private List<Long> productIds;
+    private ProductFilterDto filter;
+}
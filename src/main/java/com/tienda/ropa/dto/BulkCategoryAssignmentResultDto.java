@@ -0,0 +1,16 @@
+package com.tienda.ropa.dto;
+
+import lombok.Data;
+
+// Resumen de una asignación o remoción masiva de categoría
+@Data
+public class BulkCategoryAssignmentResultDto {
+    private Long categoryId;
+    // Productos existentes que cumplen la selección
+    private Long matched = 0L;
+    // Relaciones creadas o eliminadas
+    private Long affected = 0L;
+    // Al quitar: productos cuya categoría principal es esta (no se tocan)
+    private Long skippedPrimary = 0L;
+    private Long durationMs;
+}
@@ -2,9 +2,14 @@ package com.tienda.ropa.dto;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
+// El constructor completo lo usan las proyecciones JPQL de CategoryRepository
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class CategoryDto {
     private Long id;
     
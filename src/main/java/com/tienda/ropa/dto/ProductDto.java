@@ -1,10 +1,18 @@
 package com.tienda.ropa.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
+// El constructor completo lo usan las proyecciones JPQL de ProductRepository
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class ProductDto {
     private Long id;
     
@@ -30,4 +38,8 @@ public class ProductDto {
     private Long categoryId;
     
     private String categoryName;
+
+    // Solo para cursores y reportes, no forma parte del JSON
+    @JsonIgnore
+    private LocalDateTime createdAt;
 }
@@ -0,0 +1,39 @@
+package com.tienda.ropa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+// Conteos por faceta. Cada faceta ignora su propio criterio para mostrar las alternativas
+// (por ejemplo, los conteos por categoría no se restringen a la categoría elegida).
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetsDto {
+    private List<CategoryFacet> categories = new ArrayList<>();
+    private List<PriceBucket> priceBuckets = new ArrayList<>();
+    private Long inStockCount = 0L;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CategoryFacet {
+        private Long categoryId;
+        private String categoryName;
+        private Long count;
+    }
+
+    // Rango [from, to); "to" nulo indica el último tramo sin límite superior
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceBucket {
+        private BigDecimal from;
+        private BigDecimal to;
+        private Long count;
+    }
+}
@@ -0,0 +1,23 @@
+package com.tienda.ropa.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+// Criterios del filtro combinado de productos (/api/products/filter)
+@Data
+public class ProductFilterDto {
+
+    public static final String SORT_ID = "id";
+    public static final String SORT_PRICE_ASC = "price_asc";
+    public static final String SORT_PRICE_DESC = "price_desc";
+    public static final String SORT_NEWEST = "newest";
+
+    // Incluye productos cuya categoría principal o secundaria sea esta
+    private Long categoryId;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private Boolean inStock;
+    private Boolean active = true;
+    private String sort = SORT_ID;
+}
@@ -0,0 +1,20 @@
+package com.tienda.ropa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilterResultDto {
+    private List<ProductDto> content;
+    private String nextCursor;
+    private Integer size;
+    private Boolean hasMore;
+    // Total de productos que cumplen todos los criterios (sin paginar)
+    private Long total;
+    private ProductFacetsDto facets;
+}
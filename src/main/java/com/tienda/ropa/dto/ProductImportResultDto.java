@@ -0,0 +1,32 @@
+package com.tienda.ropa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Resumen de una importación masiva de productos
+@Data
+public class ProductImportResultDto {
+    private String fileName;
+    private String format;
+    private Long totalRows = 0L;
+    private Long imported = 0L;
+    private Long failed = 0L;
+    private Long durationMs;
+    private Double rowsPerSecond;
+    // Se guardan como máximo ProductImportService.MAX_REPORTED_ERRORS errores
+    private List<RowError> errors = new ArrayList<>();
+    private Boolean errorsTruncated = false;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private Long row;
+        private String field;
+        private String message;
+    }
+}
@@ -0,0 +1,10 @@
+package com.tienda.ropa.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+public class RefreshTokenRequest {
+    @NotBlank(message = "El refresh token es requerido")
+    private String refreshToken;
+}
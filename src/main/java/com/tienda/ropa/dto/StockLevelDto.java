@@ -0,0 +1,15 @@
+package com.tienda.ropa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Stock de un producto a una fecha. productName es null si el producto ya fue eliminado.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLevelDto {
+    private Long productId;
+    private String productName;
+    private Integer stock;
+}
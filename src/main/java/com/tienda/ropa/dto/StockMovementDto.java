@@ -0,0 +1,20 @@
+package com.tienda.ropa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// El constructor completo lo usa la proyección JPQL de StockMovementRepository
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementDto {
+    private Long id;
+    private Long productId;
+    private Integer delta;
+    private Integer stockAfter;
+    private String reason;
+    private LocalDateTime createdAt;
+}
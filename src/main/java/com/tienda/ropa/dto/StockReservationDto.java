@@ -0,0 +1,21 @@
+package com.tienda.ropa.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Línea de un carrito a reservar
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationDto {
+
+    @NotNull(message = "El id del producto es requerido")
+    private Long productId;
+
+    @NotNull(message = "La cantidad es requerida")
+    @Min(value = 1, message = "La cantidad debe ser mayor a 0")
+    private Integer quantity;
+}
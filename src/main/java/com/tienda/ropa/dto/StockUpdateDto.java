@@ -0,0 +1,21 @@
+package com.tienda.ropa.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Par {id, stock} de la actualización masiva de stock
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockUpdateDto {
+
+    @NotNull(message = "El id del producto es requerido")
+    private Long id;
+
+    @NotNull(message = "El stock es requerido")
+    @Min(value = 0, message = "El stock no puede ser negativo")
+    private Integer stock;
+}
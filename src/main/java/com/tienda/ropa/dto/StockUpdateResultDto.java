@@ -0,0 +1,21 @@
+package com.tienda.ropa.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Resumen de una actualización masiva de stock
+@Data
+public class StockUpdateResultDto {
+    private Long received = 0L;
+    private Long updated = 0L;
+    private List<Long> notFoundIds = new ArrayList<>();
+    private Long rejected = 0L;
+    // Filas rechazadas antes de llegar a la base (id o stock ausente o inválido);
+    // se detallan como máximo ProductImportService.MAX_REPORTED_ERRORS
+    private List<ProductImportResultDto.RowError> invalid = new ArrayList<>();
+    // Ids de bloques que fallaron al guardarse
+    private List<Long> failedIds = new ArrayList<>();
+    private Long durationMs;
+}
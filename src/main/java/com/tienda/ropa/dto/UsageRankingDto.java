@@ -0,0 +1,15 @@
+package com.tienda.ropa.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Posición en un ranking de uso: categorías con más productos o productos con más categorías
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UsageRankingDto {
+    private Long id;
+    private String name;
+    private Long count;
+}
@@ -1,9 +1,15 @@
 package com.tienda.ropa.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+
 import java.time.LocalDateTime;
 
+// El constructor completo lo usa la proyección JPQL de UserRepository
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class UserDto {
     private Long id;
     private String username;
@@ -0,0 +1,23 @@
+package com.tienda.ropa.event;
+
+// Evento publicado por los servicios tras cada escritura del catálogo.
+// entityId es null cuando el cambio afecta a muchos registros a la vez (operaciones masivas).
+// stock solo viene en los eventos STOCK de un producto: el stock que dejó la escritura.
+public record CatalogChangedEvent(Type type, Long entityId, Integer stock) {
+
+    public CatalogChangedEvent(Type type, Long entityId) {
+        this(type, entityId, null);
+    }
+
+    public static CatalogChangedEvent stockChanged(Long productId, Integer stock) {
+        return new CatalogChangedEvent(Type.STOCK, productId, stock);
+    }
+
+    public enum Type {
+        PRODUCT,
+        // Solo cambió el stock: no afecta nombre ni descripción (el índice de búsqueda lo ignora)
+        STOCK,
+        CATEGORY,
+        PRODUCT_CATEGORY
+    }
+}
@@ -0,0 +1,8 @@
+package com.tienda.ropa.event;
+
+// Publicado por LowStockTracker cuando un producto activo cruza el umbral de stock bajo.
+// low = true al quedar en o por debajo del umbral, false al recuperarse por encima.
+// previousStock es null si el producto recién empezó a seguirse (creado o activado).
+// Se publica después del commit de la escritura: los oyentes usan @EventListener.
+public record LowStockEvent(Long productId, Integer previousStock, Integer stock, int threshold, boolean low) {
+}
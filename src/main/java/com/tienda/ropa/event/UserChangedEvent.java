@@ -0,0 +1,14 @@
+package com.tienda.ropa.event;
+
+import com.tienda.ropa.model.Role;
+
+import java.util.Set;
+
+// Evento publicado por UserService al crear o eliminar un usuario, con sus roles
+public record UserChangedEvent(Type type, Long userId, Set<Role.RoleName> roles) {
+
+    public enum Type {
+        CREATED,
+        DELETED
+    }
+}
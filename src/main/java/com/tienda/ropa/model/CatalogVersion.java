@@ -0,0 +1,24 @@
+package com.tienda.ropa.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Versión del catálogo compartida por todas las instancias: una sola fila (id = 1) que se
+// incrementa dentro de cada transacción que modifica el catálogo (ver CatalogVersionService)
+@Entity
+@Table(name = "catalog_version")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogVersion {
+
+    public static final long SINGLETON_ID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private Long version;
+}
@@ -7,12 +7,21 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
 @Table(name = "categories")
+// Datos de referencia en la cache de segundo nivel (ver application.conf)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+// Las categorías perezosas se inicializan por lotes en lugar de una consulta por producto
+@BatchSize(size = 50)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -37,6 +46,13 @@ public class Category {
     @Column(nullable = false)
     private Boolean active = true;
     
+    // Relaciones en product_categories. Lo mantienen ProductCategoryService (en la misma
+    // transacción que cambia las relaciones) y CategoryService.reconcileProductCounts;
+    // JPA nunca lo escribe, para no pisarlo con un valor leído antes
+    @ColumnDefault("0")
+    @Column(name = "product_count", nullable = false, insertable = false, updatable = false)
+    private Long productCount = 0L;
+
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
     
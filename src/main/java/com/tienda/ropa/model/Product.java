@@ -11,11 +11,20 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+// Plan de carga para los casos que sí necesitan la categoría (lectura por id en cache)
+@NamedEntityGraph(name = Product.WITH_CATEGORY_GRAPH, attributeNodes = @NamedAttributeNode("category"))
+@Table(name = "products", indexes = {
+        // Índices compuestos para la paginación por cursor (clave de orden + id)
+        @Index(name = "idx_products_price_id", columnList = "price, id"),
+        @Index(name = "idx_products_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_products_category_id", columnList = "category_id, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Product {
+
+    public static final String WITH_CATEGORY_GRAPH = "Product.category";
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -52,8 +61,9 @@ public class Product {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
-    // Relación muchos a uno con categoría
-    @ManyToOne(fetch = FetchType.EAGER)
+    // Relación muchos a uno con categoría. Perezosa por defecto: las escrituras no la
+    // necesitan, los listados la proyectan con JOIN y la lectura por id usa el grafo
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id", nullable = false)
     @JsonIgnore
     private Category category;
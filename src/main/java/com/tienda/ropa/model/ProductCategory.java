@@ -4,11 +4,20 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "product_categories")
+// Una sola fila por par: permite insertar relaciones con ON CONFLICT DO NOTHING. En bases ya
+// existentes la crea ProductCategoryConstraintInitializer tras eliminar duplicados.
+@Table(name = "product_categories",
+       uniqueConstraints = @UniqueConstraint(name = "uk_product_categories_product_category",
+                                             columnNames = {"product_id", "category_id"}))
+// Datos de referencia en la cache de segundo nivel (ver application.conf)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,59 @@
+package com.tienda.ropa.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Diario de inventario: una fila por cada cambio de stock, solo se agregan filas.
+// El producto se guarda como id (sin relación) para que el diario sobreviva a su eliminación.
+// Las filas se escriben solo desde SQL nativo (StockMovementRepositoryImpl, ProductRepositoryImpl).
+@Entity
+@Table(name = "stock_movements", indexes = {
+        // Historial por producto y stock a una fecha (último movimiento anterior)
+        @Index(name = "idx_stock_movements_product_created", columnList = "product_id, created_at, id"),
+        // Recorrido de los movimientos posteriores a una instantánea
+        @Index(name = "idx_stock_movements_created", columnList = "created_at"),
+        // Último movimiento de un producto posterior a una instantánea (por id)
+        @Index(name = "idx_stock_movements_product_id", columnList = "product_id, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovement {
+
+    // Los nombres se escriben también desde SQL nativo (ProductRepositoryImpl)
+    public enum Reason {
+        CREATE,
+        UPDATE,
+        SET,
+        RESERVE,
+        RELEASE,
+        BULK,
+        IMPORT,
+        DELETE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false, updatable = false)
+    private Long productId;
+
+    @Column(nullable = false, updatable = false)
+    private Integer delta;
+
+    @Column(name = "stock_after", nullable = false, updatable = false)
+    private Integer stockAfter;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false, updatable = false)
+    private Reason reason;
+
+    // La pone la base al insertar (StockMovementRepositoryImpl.MOVED_AT)
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
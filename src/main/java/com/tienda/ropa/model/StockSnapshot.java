@@ -0,0 +1,37 @@
+package com.tienda.ropa.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Stock de cada producto en un instante. Todas las filas de una misma instantánea comparten
+// taken_at; se escriben con un solo INSERT ... SELECT (ver StockMovementRepositoryImpl).
+@Entity
+@Table(name = "stock_snapshots", indexes = {
+        @Index(name = "idx_stock_snapshots_taken_product", columnList = "taken_at, product_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false, updatable = false)
+    private Long productId;
+
+    @Column(nullable = false, updatable = false)
+    private Integer stock;
+
+    // Último movimiento del producto incluido en esta instantánea (null: ninguno)
+    @Column(name = "last_movement_id", updatable = false)
+    private Long lastMovementId;
+
+    @Column(name = "taken_at", nullable = false, updatable = false)
+    private LocalDateTime takenAt;
+}
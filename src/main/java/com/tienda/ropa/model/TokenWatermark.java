@@ -0,0 +1,30 @@
+package com.tienda.ropa.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// "Los tokens de este usuario emitidos antes de not_before no son válidos" (bloqueo,
+// cambio de contraseña, baja). Expira cuando el último token afectado habría expirado.
+@Entity
+@Table(name = "token_watermarks", indexes = {
+        @Index(name = "idx_token_watermarks_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenWatermark {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "not_before", nullable = false)
+    private LocalDateTime notBefore;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -1,29 +1,84 @@
 package com.tienda.ropa.repository;
 
+import com.tienda.ropa.dto.CategoryDto;
 import com.tienda.ropa.model.Category;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
     
+    // Consultas frecuentes sobre datos de referencia: resultados en la cache de consultas de Hibernate,
+    // que se invalida sola cuando cambian las tablas involucradas
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Category> findByName(String name);
     
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Boolean existsByName(String name);
+
+    // Proyección directa a CategoryDto; el conteo de productos es la columna product_count
+    String CATEGORY_DTO_SELECT = "SELECT new com.tienda.ropa.dto.CategoryDto(" +
+            "c.id, c.name, c.description, c.imageUrl, c.active, c.productCount) " +
+            "FROM Category c ";
+
+    @Query(CATEGORY_DTO_SELECT)
+    List<CategoryDto> findAllDtos();
     
-    @Query("SELECT c FROM Category c WHERE c.active = true")
-    List<Category> findAllActiveCategories();
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query(CATEGORY_DTO_SELECT + "WHERE c.active = true")
+    List<CategoryDto> findAllActiveCategories();
     
-    @Query("SELECT c FROM Category c WHERE c.active = true ORDER BY c.name ASC")
-    List<Category> findAllActiveCategoriesOrderByName();
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query(CATEGORY_DTO_SELECT + "WHERE c.active = true ORDER BY c.name ASC")
+    List<CategoryDto> findAllActiveCategoriesOrderByName();
     
-    @Query("SELECT c FROM Category c WHERE LOWER(c.name) LIKE LOWER(CONCAT('%', :name, '%'))")
-    List<Category> findByNameContainingIgnoreCase(@Param("name") String name);
+    @Query(CATEGORY_DTO_SELECT + "WHERE LOWER(c.name) LIKE LOWER(CONCAT('%', :name, '%'))")
+    List<CategoryDto> findByNameContainingIgnoreCase(@Param("name") String name);
+
+    @Query("SELECT c.id FROM Category c")
+    List<Long> findAllIds();
+
+    @Query("SELECT c.id FROM Category c WHERE c.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT COUNT(c) FROM Category c WHERE c.active = true")
+    Long countActiveCategories();
+
+    @Query("SELECT COUNT(c) FROM Category c WHERE c.productCount > 0")
+    Long countCategoriesWithProducts();
+
+    @Query("SELECT c.productCount FROM Category c WHERE c.id = :id")
+    Optional<Long> findProductCountById(@Param("id") Long id);
+
+    // =================== CONTADOR product_count ===================
+    // Actualizaciones en bloque (HQL): Hibernate invalida la región de Category en la cache
+    // de segundo nivel y las consultas cacheadas sobre categories
+
+    @Modifying
+    @Query("UPDATE Category c SET c.productCount = c.productCount + :delta WHERE c.id IN :ids")
+    int adjustProductCount(@Param("ids") Collection<Long> ids, @Param("delta") long delta);
+
+    @Modifying
+    @Query("UPDATE Category c SET c.productCount = 0 WHERE c.id = :id")
+    int resetProductCount(@Param("id") Long id);
+
+    // Recalcula los contadores que no coinciden con product_categories; devuelve cuántos corrigió
+    @Modifying
+    @Query(value = "UPDATE categories c SET product_count = x.cnt " +
+            "FROM (SELECT c2.id, COUNT(pc.id) AS cnt FROM categories c2 " +
+            "      LEFT JOIN product_categories pc ON pc.category_id = c2.id GROUP BY c2.id) x " +
+            "WHERE c.id = x.id AND c.product_count <> x.cnt", nativeQuery = true)
+    int reconcileProductCounts();
     
     @Query("SELECT COUNT(p) FROM Product p WHERE p.category.id = :categoryId")
     Long countProductsByCategoryId(@Param("categoryId") Long categoryId);
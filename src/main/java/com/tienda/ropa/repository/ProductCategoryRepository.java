@@ -8,16 +8,29 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductCategoryRepository extends JpaRepository<ProductCategory, Long> {
+public interface ProductCategoryRepository extends JpaRepository<ProductCategory, Long>, ProductCategoryRepositoryCustom {
     
     // Encontrar todas las relaciones de un producto
     @Query("SELECT pc FROM ProductCategory pc WHERE pc.product.id = :productId")
     List<ProductCategory> findByProductId(@Param("productId") Long productId);
     
+    // Ids de las categorías de un producto (para ajustar sus contadores)
+    @Query("SELECT pc.category.id FROM ProductCategory pc WHERE pc.product.id = :productId")
+    List<Long> findCategoryIdsByProductId(@Param("productId") Long productId);
+    
+    // Pares [id de categoría, id de producto] para el índice de categorías en memoria
+    @Query("SELECT pc.category.id, pc.product.id FROM ProductCategory pc")
+    List<Object[]> findAllMemberships();
+    
+    @Query("SELECT pc.product.id FROM ProductCategory pc WHERE pc.category.id = :categoryId")
+    List<Long> findProductIdsByCategoryId(@Param("categoryId") Long categoryId);
+    
     // Encontrar todas las relaciones de una categoría
     @Query("SELECT pc FROM ProductCategory pc WHERE pc.category.id = :categoryId")
     List<ProductCategory> findByCategoryId(@Param("categoryId") Long categoryId);
@@ -58,13 +71,21 @@ public interface ProductCategoryRepository extends JpaRepository<ProductCategory
     @Modifying
     @Transactional
     @Query("DELETE FROM ProductCategory pc WHERE pc.product.id = :productId AND pc.category.id = :categoryId")
-    void deleteByProductIdAndCategoryId(@Param("productId") Long productId, @Param("categoryId") Long categoryId);
+    int deleteByProductIdAndCategoryId(@Param("productId") Long productId, @Param("categoryId") Long categoryId);
     
-    // Productos más populares por número de categorías
-    @Query("SELECT pc.product.id, COUNT(pc) as categoryCount FROM ProductCategory pc GROUP BY pc.product.id ORDER BY categoryCount DESC")
-    List<Object[]> findProductsWithMostCategories();
+    // Eliminar varias relaciones de un producto con una sola sentencia
+    @Modifying
+    @Query("DELETE FROM ProductCategory pc WHERE pc.product.id = :productId AND pc.category.id IN :categoryIds")
+    int deleteByProductIdAndCategoryIdIn(@Param("productId") Long productId, @Param("categoryIds") Collection<Long> categoryIds);
     
-    // Categorías más usadas
-    @Query("SELECT pc.category.id, COUNT(pc) as productCount FROM ProductCategory pc GROUP BY pc.category.id ORDER BY productCount DESC")
-    List<Object[]> findMostUsedCategories();
-}
\ No newline at end of file
+    // Deja como primaria solo la relación con categoryId (ninguna si es nulo o no está asociada);
+    // solo toca las filas cuyo indicador cambia
+    @Modifying
+    @Query("UPDATE ProductCategory pc SET pc.isPrimary = CASE WHEN pc.category.id = :categoryId THEN true ELSE false END, " +
+           "pc.updatedAt = :now " +
+           "WHERE pc.product.id = :productId AND " +
+           "((pc.isPrimary = true AND (:categoryId IS NULL OR pc.category.id <> :categoryId)) " +
+           " OR (pc.isPrimary = false AND pc.category.id = :categoryId))")
+    int updatePrimaryFlags(@Param("productId") Long productId, @Param("categoryId") Long categoryId,
+                           @Param("now") LocalDateTime now);
+}
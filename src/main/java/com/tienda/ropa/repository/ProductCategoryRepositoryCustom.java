@@ -0,0 +1,13 @@
+package com.tienda.ropa.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+// Escrituras de relaciones producto-categoría en SQL nativo, ver ProductCategoryRepositoryImpl
+public interface ProductCategoryRepositoryCustom {
+
+    // Inserta las relaciones que faltan con un solo INSERT ... ON CONFLICT DO NOTHING
+    // (restricción única product_id, category_id). Devuelve los ids de categoría realmente
+    // insertados. No ajusta contadores, no publica eventos ni toca las caches.
+    List<Long> insertMissingRelations(Long productId, Collection<Long> categoryIds, Long primaryCategoryId);
+}
@@ -0,0 +1,34 @@
+package com.tienda.ropa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.Collection;
+import java.util.List;
+
+// Implementación de ProductCategoryRepositoryCustom (Spring Data la detecta por el sufijo Impl)
+@RequiredArgsConstructor
+public class ProductCategoryRepositoryImpl implements ProductCategoryRepositoryCustom {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> insertMissingRelations(Long productId, Collection<Long> categoryIds, Long primaryCategoryId) {
+        if (categoryIds.isEmpty()) {
+            return List.of();
+        }
+        // Las filas que ya existen (p. ej. por una escritura concurrente) se omiten en silencio:
+        // RETURNING solo trae las insertadas, que son las que suman en product_count
+        String sql = "INSERT INTO product_categories (product_id, category_id, is_primary, created_at, updated_at) " +
+                "SELECT :productId, c.id, COALESCE(c.id = CAST(:primaryId AS bigint), FALSE), LOCALTIMESTAMP, LOCALTIMESTAMP " +
+                "FROM categories c WHERE c.id IN (:categoryIds) " +
+                "ON CONFLICT (product_id, category_id) DO NOTHING " +
+                "RETURNING category_id";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("productId", productId)
+                .addValue("categoryIds", categoryIds)
+                .addValue("primaryId", primaryCategoryId);
+        return jdbcTemplate.queryForList(sql, params, Long.class);
+    }
+}
@@ -1,47 +1,168 @@
 package com.tienda.ropa.repository;
 
+import com.tienda.ropa.dto.ProductDto;
 import com.tienda.ropa.model.Product;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
-    
-    @Query("SELECT p FROM Product p WHERE p.active = true")
-    List<Product> findAllActiveProducts();
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+
+    // Proyección directa a ProductDto: solo las columnas que devuelven los listados,
+    // sin entidades administradas en el contexto de persistencia
+    String PRODUCT_DTO_SELECT = "SELECT new com.tienda.ropa.dto.ProductDto(" +
+            "p.id, p.name, p.description, p.price, p.stock, p.imageUrl, p.active, c.id, c.name, p.createdAt) " +
+            "FROM Product p JOIN p.category c ";
+
+    @EntityGraph(Product.WITH_CATEGORY_GRAPH)
+    @Query("SELECT p FROM Product p WHERE p.id = :id")
+    Optional<Product> findWithCategoryById(@Param("id") Long id);
+
+    // Bloquea la fila hasta el fin de la transacción: el stock leído es el que se reemplaza
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id = :id")
+    Optional<Product> findByIdForUpdate(@Param("id") Long id);
+
+    @Query(PRODUCT_DTO_SELECT)
+    List<ProductDto> findAllDtos();
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.active = true")
+    List<ProductDto> findAllActiveProducts();
+
+    // =================== TRANSMISIÓN (STREAM) ===================
+    // Deben consumirse dentro de una transacción; el fetch size evita traer todo el resultado de una vez
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(PRODUCT_DTO_SELECT + "ORDER BY p.id")
+    Stream<ProductDto> streamAllDtos();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(PRODUCT_DTO_SELECT + "WHERE EXISTS (SELECT 1 FROM ProductCategory pc WHERE pc.product = p AND pc.category.id = :categoryId) " +
+           "ORDER BY p.id")
+    Stream<ProductDto> streamDtosByLinkedCategory(@Param("categoryId") Long categoryId);
     
-    @Query("SELECT p FROM Product p WHERE p.category.id = :categoryId AND p.active = true")
-    List<Product> findByCategoryIdAndActiveTrue(@Param("categoryId") Long categoryId);
+    @Query(PRODUCT_DTO_SELECT + "WHERE c.id = :categoryId AND p.active = true")
+    List<ProductDto> findByCategoryIdAndActiveTrue(@Param("categoryId") Long categoryId);
     
-    @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')) AND p.active = true")
-    List<Product> findByNameContainingIgnoreCaseAndActiveTrue(@Param("name") String name);
+    @Query(PRODUCT_DTO_SELECT + "WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')) AND p.active = true")
+    List<ProductDto> findByNameContainingIgnoreCaseAndActiveTrue(@Param("name") String name);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.id IN :ids AND p.active = true")
+    List<ProductDto> findActiveDtosByIdIn(@Param("ids") Collection<Long> ids);
     
-    @Query("SELECT p FROM Product p WHERE p.price BETWEEN :minPrice AND :maxPrice AND p.active = true")
-    List<Product> findByPriceBetweenAndActiveTrue(@Param("minPrice") BigDecimal minPrice, @Param("maxPrice") BigDecimal maxPrice);
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.price BETWEEN :minPrice AND :maxPrice AND p.active = true")
+    List<ProductDto> findByPriceBetweenAndActiveTrue(@Param("minPrice") BigDecimal minPrice, @Param("maxPrice") BigDecimal maxPrice);
     
-    @Query("SELECT p FROM Product p WHERE p.stock > 0 AND p.active = true")
-    List<Product> findByStockGreaterThanZeroAndActiveTrue();
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.stock > 0 AND p.active = true")
+    List<ProductDto> findByStockGreaterThanZeroAndActiveTrue();
     
-    @Query("SELECT p FROM Product p WHERE p.stock <= :minStock AND p.active = true")
-    List<Product> findByLowStock(@Param("minStock") Integer minStock);
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.stock <= :minStock AND p.active = true ORDER BY p.stock ASC, p.id ASC")
+    List<ProductDto> findByLowStock(@Param("minStock") Integer minStock);
     
-    @Query("SELECT p FROM Product p WHERE p.active = true ORDER BY p.createdAt DESC")
-    List<Product> findAllActiveProductsOrderByCreatedAtDesc();
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.active = true ORDER BY p.createdAt DESC")
+    List<ProductDto> findAllActiveProductsOrderByCreatedAtDesc();
     
-    @Query("SELECT p FROM Product p WHERE p.active = true ORDER BY p.price ASC")
-    List<Product> findAllActiveProductsOrderByPriceAsc();
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.active = true ORDER BY p.price ASC")
+    List<ProductDto> findAllActiveProductsOrderByPriceAsc();
     
-    @Query("SELECT p FROM Product p WHERE p.active = true ORDER BY p.price DESC")
-    List<Product> findAllActiveProductsOrderByPriceDesc();
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.active = true ORDER BY p.price DESC")
+    List<ProductDto> findAllActiveProductsOrderByPriceDesc();
     
+    // Campos para el índice de búsqueda en memoria (sin cargar entidades ni categoría)
+    @Query("SELECT p.id, p.name, p.description FROM Product p WHERE p.active = true")
+    List<Object[]> findActiveSearchableFields();
+
+    @Query("SELECT p.id, p.name, p.description, p.active FROM Product p WHERE p.id = :id")
+    List<Object[]> findSearchableFieldsById(@Param("id") Long id);
+
+    // Carga inicial del seguimiento de stock bajo: [id, stock, active]
+    @Query("SELECT p.id, p.stock, p.active FROM Product p")
+    List<Object[]> findStockLevels();
+
+    @Query("SELECT p.id, p.stock, p.active FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findStockLevelsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Índice de categorías en memoria: [id, stock, active, id de categoría principal]
+    @Query("SELECT p.id, p.stock, p.active, p.category.id FROM Product p")
+    List<Object[]> findCategoryIndexFields();
+
+    @Query("SELECT p.stock, p.active, p.category.id FROM Product p WHERE p.id = :id")
+    List<Object[]> findCategoryIndexFieldsById(@Param("id") Long id);
+
+    @Query("SELECT p.id FROM Product p WHERE p.category.id = :categoryId")
+    List<Long> findIdsByPrimaryCategoryId(@Param("categoryId") Long categoryId);
+
+    @Query("SELECT p.id, p.name FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findNamesByIdIn(@Param("ids") Collection<Long> ids);
+
     @Query("SELECT COUNT(p) FROM Product p WHERE p.active = true")
     Long countActiveProducts();
+
+    @Query("SELECT COUNT(p) FROM Product p WHERE p.stock <= :minStock AND p.active = true")
+    Long countLowStock(@Param("minStock") Integer minStock);
     
     @Query("SELECT SUM(p.stock) FROM Product p WHERE p.active = true")
     Long getTotalStock();
+
+    // =================== PAGINACIÓN POR CURSOR (KEYSET) ===================
+    // El Pageable solo se usa para limitar filas (LIMIT), el orden lo fija cada consulta
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.active = true AND p.id > :afterId ORDER BY p.id ASC")
+    List<ProductDto> findActivePage(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.id > :afterId ORDER BY p.id ASC")
+    List<ProductDto> findAllPage(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE c.id = :categoryId AND p.active = true AND p.id > :afterId ORDER BY p.id ASC")
+    List<ProductDto> findActiveByCategoryPage(@Param("categoryId") Long categoryId, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')) AND p.active = true AND p.id > :afterId ORDER BY p.id ASC")
+    List<ProductDto> searchActiveByNamePage(@Param("name") String name, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.price BETWEEN :minPrice AND :maxPrice AND p.active = true AND p.id > :afterId ORDER BY p.id ASC")
+    List<ProductDto> findActiveByPriceRangePage(@Param("minPrice") BigDecimal minPrice, @Param("maxPrice") BigDecimal maxPrice,
+                                                @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.stock > 0 AND p.active = true AND p.id > :afterId ORDER BY p.id ASC")
+    List<ProductDto> findActiveInStockPage(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.stock <= :minStock AND p.active = true AND p.id > :afterId ORDER BY p.id ASC")
+    List<ProductDto> findLowStockPage(@Param("minStock") Integer minStock, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.active = true ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProductDto> findLatestFirstPage(Pageable pageable);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.active = true AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProductDto> findLatestPage(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.active = true ORDER BY p.price ASC, p.id ASC")
+    List<ProductDto> findByPriceAscFirstPage(Pageable pageable);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.active = true AND (p.price > :price OR (p.price = :price AND p.id > :id)) " +
+           "ORDER BY p.price ASC, p.id ASC")
+    List<ProductDto> findByPriceAscPage(@Param("price") BigDecimal price, @Param("id") Long id, Pageable pageable);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.active = true ORDER BY p.price DESC, p.id DESC")
+    List<ProductDto> findByPriceDescFirstPage(Pageable pageable);
+
+    @Query(PRODUCT_DTO_SELECT + "WHERE p.active = true AND (p.price < :price OR (p.price = :price AND p.id < :id)) " +
+           "ORDER BY p.price DESC, p.id DESC")
+    List<ProductDto> findByPriceDescPage(@Param("price") BigDecimal price, @Param("id") Long id, Pageable pageable);
 }
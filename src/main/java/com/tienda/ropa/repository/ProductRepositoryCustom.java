@@ -0,0 +1,59 @@
+package com.tienda.ropa.repository;
+
+import com.tienda.ropa.dto.BulkCategoryAssignmentResultDto;
+import com.tienda.ropa.dto.ProductDto;
+import com.tienda.ropa.dto.ProductFilterDto;
+import com.tienda.ropa.dto.ProductFilterResultDto;
+import com.tienda.ropa.dto.StockUpdateDto;
+import com.tienda.ropa.util.CursorUtil;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Consultas de productos construidas dinámicamente (SQL nativo), ver ProductRepositoryImpl.
+// Las escrituras de stock registran sus movimientos en stock_movements en la misma sentencia.
+public interface ProductRepositoryCustom {
+
+    // Devuelve hasta fetchLimit productos posteriores al cursor junto con las facetas,
+    // todo en una sola consulta. El llamador recorta la fila extra y arma el cursor.
+    ProductFilterResultDto filterProducts(ProductFilterDto filter, CursorUtil.Cursor after, int fetchLimit);
+
+    // Inserta los productos (activos) y su relación principal en product_categories con una
+    // sola sentencia. Devuelve la cantidad insertada. No publica eventos ni toca las caches.
+    int insertProductsWithPrimaryCategory(List<ProductDto> products);
+
+    // Fija el stock de todos los pares con un solo UPDATE ... FROM (VALUES ...).
+    // Devuelve los ids que existían (y se actualizaron). No publica eventos ni toca las caches.
+    List<Long> updateStockBulk(List<StockUpdateDto> updates);
+
+    // Descuenta quantity solo si alcanza el stock, en una única sentencia condicional.
+    // Devuelve el stock resultante, o vacío si el producto no existe o el stock no alcanza.
+    Optional<Integer> reserveStock(Long productId, int quantity);
+
+    // Devuelve el stock resultante, o vacío si el producto no existe
+    Optional<Integer> releaseStock(Long productId, int quantity);
+
+    // Descuenta todas las líneas (productId → cantidad total) con una sola sentencia.
+    // Solo se actualizan los productos con stock suficiente: devuelve productId → stock
+    // resultante de los actualizados; el llamador revierte la transacción si falta alguno.
+    Map<Long, Integer> reserveStockLines(Map<Long, Integer> quantities);
+
+    // Asigna la categoría (como secundaria) a los productos seleccionados por ids o, si
+    // productIds es nulo, por el filtro, con un solo INSERT ... SELECT que además suma en
+    // categories.product_count. Las relaciones existentes se omiten.
+    // No publica eventos ni toca las caches.
+    BulkCategoryAssignmentResultDto assignCategoryBulk(Long categoryId, Collection<Long> productIds, ProductFilterDto filter);
+
+    // Ids de productos activos en todas las categorías de allOf y, si anyOf no está vacío, en
+    // al menos una de anyOf (principal o secundaria), mayores que afterId y ascendentes.
+    // Equivale a CategoryBitmapIndex.find, para cuando el índice no está disponible.
+    List<Long> findActiveIdsByCategories(Collection<Long> allOf, Collection<Long> anyOf, boolean inStockOnly,
+                                         long afterId, int limit);
+
+    // Quita la categoría de los productos seleccionados con un solo DELETE que además resta en
+    // categories.product_count. Las relaciones principales se conservan.
+    // No publica eventos ni toca las caches.
+    BulkCategoryAssignmentResultDto removeCategoryBulk(Long categoryId, Collection<Long> productIds, ProductFilterDto filter);
+}
@@ -0,0 +1,404 @@
+package com.tienda.ropa.repository;
+
+import com.tienda.ropa.dto.BulkCategoryAssignmentResultDto;
+import com.tienda.ropa.dto.ProductDto;
+import com.tienda.ropa.dto.ProductFacetsDto;
+import com.tienda.ropa.dto.ProductFilterDto;
+import com.tienda.ropa.dto.ProductFilterResultDto;
+import com.tienda.ropa.dto.StockUpdateDto;
+import com.tienda.ropa.model.StockMovement;
+import com.tienda.ropa.util.CursorUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+// Implementación de ProductRepositoryCustom (Spring Data la detecta por el sufijo Impl)
+@RequiredArgsConstructor
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    private static final String KIND_ITEM = "item";
+    private static final String KIND_CATEGORY = "category";
+    private static final String KIND_PRICE = "price";
+    private static final String KIND_IN_STOCK = "in_stock";
+    private static final String KIND_TOTAL = "total";
+
+    // Cada escritura de stock agrega su fila al diario de inventario en la misma sentencia
+    private static final String JOURNAL_INSERT =
+            "INSERT INTO stock_movements (product_id, delta, stock_after, reason, created_at) ";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // Límites de los tramos de precio: 25,50 → [0,25) [25,50) [50,∞)
+    @Value("${app.filter.price-buckets:25,50,100,200}")
+    private List<BigDecimal> priceBucketBounds;
+
+    @Override
+    public int insertProductsWithPrimaryCategory(List<ProductDto> products) {
+        if (products.isEmpty()) {
+            return 0;
+        }
+        // INSERT de varias filas; el CTE devuelve los ids generados para crear las relaciones,
+        // sumar en el contador de cada categoría y registrar el stock inicial en el diario
+        StringBuilder sql = new StringBuilder("WITH ins AS (INSERT INTO products " +
+                "(name, description, price, stock, image_url, active, category_id, created_at, updated_at) VALUES ");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        for (int i = 0; i < products.size(); i++) {
+            ProductDto product = products.get(i);
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(:name").append(i).append(", :description").append(i).append(", :price").append(i)
+               .append(", :stock").append(i).append(", :imageUrl").append(i).append(", TRUE, :categoryId").append(i)
+               .append(", LOCALTIMESTAMP, LOCALTIMESTAMP)");
+            params.addValue("name" + i, product.getName());
+            params.addValue("description" + i, product.getDescription());
+            params.addValue("price" + i, product.getPrice());
+            params.addValue("stock" + i, product.getStock());
+            params.addValue("imageUrl" + i, product.getImageUrl());
+            params.addValue("categoryId" + i, product.getCategoryId());
+        }
+        sql.append(" RETURNING id, category_id, stock), " +
+                "pc AS (INSERT INTO product_categories (product_id, category_id, is_primary, created_at, updated_at) " +
+                "SELECT id, category_id, TRUE, LOCALTIMESTAMP, LOCALTIMESTAMP FROM ins), " +
+                "cnt AS (UPDATE categories c SET product_count = c.product_count + x.n " +
+                "FROM (SELECT category_id, COUNT(*) AS n FROM ins GROUP BY category_id) x WHERE c.id = x.category_id) " +
+                JOURNAL_INSERT + "SELECT id, stock, stock, '" + StockMovement.Reason.IMPORT + "', " + StockMovementRepositoryImpl.MOVED_AT + " FROM ins");
+        return jdbcTemplate.update(sql.toString(), params);
+    }
+
+    @Override
+    public List<Long> updateStockBulk(List<StockUpdateDto> updates) {
+        if (updates.isEmpty()) {
+            return List.of();
+        }
+        // Los CAST fijan el tipo de las columnas de la tabla VALUES
+        StringBuilder sql = new StringBuilder("WITH v(id, stock) AS (VALUES ");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        for (int i = 0; i < updates.size(); i++) {
+            StockUpdateDto update = updates.get(i);
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(CAST(:id").append(i).append(" AS bigint), CAST(:stock").append(i).append(" AS integer))");
+            params.addValue("id" + i, update.getId());
+            params.addValue("stock" + i, update.getStock());
+        }
+        // "old" bloquea las filas y lee el stock vigente para registrar la diferencia en el diario
+        sql.append("), old AS MATERIALIZED (" +
+                "SELECT p.id, p.stock FROM products p WHERE p.id IN (SELECT id FROM v) ORDER BY p.id FOR UPDATE), " +
+                "upd AS (UPDATE products p SET stock = v.stock, updated_at = LOCALTIMESTAMP " +
+                "FROM v JOIN old o ON o.id = v.id WHERE p.id = v.id RETURNING p.id, p.stock, o.stock AS old_stock), " +
+                "mov AS (" + JOURNAL_INSERT + "SELECT id, stock - old_stock, stock, '" + StockMovement.Reason.BULK +
+                "', " + StockMovementRepositoryImpl.MOVED_AT + " FROM upd WHERE stock <> old_stock) " +
+                "SELECT id FROM upd");
+        return jdbcTemplate.queryForList(sql.toString(), params, Long.class);
+    }
+
+    @Override
+    public Optional<Integer> reserveStock(Long productId, int quantity) {
+        // La condición se evalúa sobre la fila bloqueada: dos ventas concurrentes no pueden
+        // dejar el stock negativo ni pisarse entre sí
+        List<Integer> stock = jdbcTemplate.queryForList(
+                "WITH upd AS (UPDATE products SET stock = stock - :quantity, updated_at = LOCALTIMESTAMP " +
+                "WHERE id = :id AND stock >= :quantity RETURNING id, stock), " +
+                "mov AS (" + JOURNAL_INSERT + "SELECT id, -:quantity, stock, '" + StockMovement.Reason.RESERVE +
+                "', " + StockMovementRepositoryImpl.MOVED_AT + " FROM upd) " +
+                "SELECT stock FROM upd",
+                new MapSqlParameterSource("id", productId).addValue("quantity", quantity), Integer.class);
+        return stock.stream().findFirst();
+    }
+
+    @Override
+    public Optional<Integer> releaseStock(Long productId, int quantity) {
+        List<Integer> stock = jdbcTemplate.queryForList(
+                "WITH upd AS (UPDATE products SET stock = stock + :quantity, updated_at = LOCALTIMESTAMP " +
+                "WHERE id = :id RETURNING id, stock), " +
+                "mov AS (" + JOURNAL_INSERT + "SELECT id, :quantity, stock, '" + StockMovement.Reason.RELEASE +
+                "', " + StockMovementRepositoryImpl.MOVED_AT + " FROM upd) " +
+                "SELECT stock FROM upd",
+                new MapSqlParameterSource("id", productId).addValue("quantity", quantity), Integer.class);
+        return stock.stream().findFirst();
+    }
+
+    @Override
+    public Map<Long, Integer> reserveStockLines(Map<Long, Integer> quantities) {
+        Map<Long, Integer> result = new LinkedHashMap<>();
+        if (quantities.isEmpty()) {
+            return result;
+        }
+        // Las filas se bloquean en orden de id antes de actualizar: dos carritos con los mismos
+        // productos en distinto orden esperan uno al otro en lugar de quedar en deadlock
+        StringBuilder sql = new StringBuilder("WITH v(id, quantity) AS (VALUES ");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        int i = 0;
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(CAST(:id").append(i).append(" AS bigint), CAST(:quantity").append(i).append(" AS integer))");
+            params.addValue("id" + i, line.getKey());
+            params.addValue("quantity" + i, line.getValue());
+            i++;
+        }
+        sql.append("), locked AS MATERIALIZED (" +
+                "SELECT p.id FROM products p WHERE p.id IN (SELECT id FROM v) ORDER BY p.id FOR UPDATE), " +
+                "upd AS (UPDATE products p SET stock = p.stock - v.quantity, updated_at = LOCALTIMESTAMP " +
+                "FROM v JOIN locked l ON l.id = v.id " +
+                "WHERE p.id = v.id AND p.stock >= v.quantity RETURNING p.id, p.stock, v.quantity), " +
+                "mov AS (" + JOURNAL_INSERT + "SELECT id, -quantity, stock, '" + StockMovement.Reason.RESERVE +
+                "', " + StockMovementRepositoryImpl.MOVED_AT + " FROM upd) " +
+                "SELECT id, stock FROM upd");
+        jdbcTemplate.query(sql.toString(), params, (RowCallbackHandler) rs ->
+                result.put(rs.getLong("id"), rs.getInt("stock")));
+        return result;
+    }
+
+    @Override
+    public BulkCategoryAssignmentResultDto assignCategoryBulk(Long categoryId, Collection<Long> productIds, ProductFilterDto filter) {
+        // :targetCategoryId y no :categoryId: el filtro puede traer su propia categoría
+        MapSqlParameterSource params = new MapSqlParameterSource("targetCategoryId", categoryId);
+        String sql = "WITH target AS (" + targetSelect(productIds, filter, params) + "), " +
+                "ins AS (INSERT INTO product_categories (product_id, category_id, is_primary, created_at, updated_at) " +
+                "  SELECT t.id, :targetCategoryId, FALSE, LOCALTIMESTAMP, LOCALTIMESTAMP FROM target t " +
+                "  ON CONFLICT (product_id, category_id) DO NOTHING RETURNING product_id), " +
+                "cnt AS (UPDATE categories SET product_count = product_count + (SELECT COUNT(*) FROM ins) " +
+                "  WHERE id = :targetCategoryId) " +
+                "SELECT (SELECT COUNT(*) FROM target) AS matched, (SELECT COUNT(*) FROM ins) AS affected, " +
+                "0 AS skipped_primary";
+        return queryBulkCategoryResult(sql, params, categoryId);
+    }
+
+    @Override
+    public BulkCategoryAssignmentResultDto removeCategoryBulk(Long categoryId, Collection<Long> productIds, ProductFilterDto filter) {
+        MapSqlParameterSource params = new MapSqlParameterSource("targetCategoryId", categoryId);
+        // La relación principal refleja products.category_id: quitarla dejaría al producto
+        // con una categoría principal sin su relación, por eso se cuenta pero no se borra
+        String sql = "WITH target AS (" + targetSelect(productIds, filter, params) + "), " +
+                "del AS (DELETE FROM product_categories pc USING target t " +
+                "  WHERE pc.product_id = t.id AND pc.category_id = :targetCategoryId AND pc.is_primary = FALSE " +
+                "  RETURNING pc.product_id), " +
+                "cnt AS (UPDATE categories SET product_count = product_count - (SELECT COUNT(*) FROM del) " +
+                "  WHERE id = :targetCategoryId) " +
+                "SELECT (SELECT COUNT(*) FROM target) AS matched, (SELECT COUNT(*) FROM del) AS affected, " +
+                "(SELECT COUNT(*) FROM product_categories pc JOIN target t ON t.id = pc.product_id " +
+                "  WHERE pc.category_id = :targetCategoryId AND pc.is_primary) AS skipped_primary";
+        return queryBulkCategoryResult(sql, params, categoryId);
+    }
+
+    @Override
+    public List<Long> findActiveIdsByCategories(Collection<Long> allOf, Collection<Long> anyOf, boolean inStockOnly,
+                                                long afterId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("afterId", afterId).addValue("limit", limit);
+        StringBuilder sql = new StringBuilder(
+                "SELECT p.id FROM products p WHERE p.active = TRUE AND p.id > :afterId");
+        int i = 0;
+        for (Long categoryId : allOf) {
+            String param = "all" + i++;
+            params.addValue(param, categoryId);
+            sql.append(" AND ").append(inCategories("= :" + param));
+        }
+        if (!anyOf.isEmpty()) {
+            params.addValue("anyOf", anyOf);
+            sql.append(" AND ").append(inCategories("IN (:anyOf)"));
+        }
+        if (inStockOnly) {
+            sql.append(" AND p.stock > 0");
+        }
+        sql.append(" ORDER BY p.id LIMIT :limit");
+        return jdbcTemplate.queryForList(sql.toString(), params, Long.class);
+    }
+
+    // Pertenencia por categoría principal o por relación en product_categories
+    private static String inCategories(String condition) {
+        return "(p.category_id " + condition + " OR EXISTS (SELECT 1 FROM product_categories pc " +
+                "WHERE pc.product_id = p.id AND pc.category_id " + condition + "))";
+    }
+
+    // Ids seleccionados: la lista recibida (solo los que existen) o los que cumplen todos los criterios del filtro
+    private String targetSelect(Collection<Long> productIds, ProductFilterDto filter, MapSqlParameterSource params) {
+        if (productIds != null) {
+            params.addValue("productIds", productIds);
+            return "SELECT p.id FROM products p WHERE p.id IN (:productIds)";
+        }
+        return "SELECT b.id FROM (" + baseSelect(filter, params) + ") b WHERE b.m_cat AND b.m_price AND b.m_stock";
+    }
+
+    private BulkCategoryAssignmentResultDto queryBulkCategoryResult(String sql, MapSqlParameterSource params, Long categoryId) {
+        return jdbcTemplate.queryForObject(sql, params, (rs, rowNum) -> {
+            BulkCategoryAssignmentResultDto result = new BulkCategoryAssignmentResultDto();
+            result.setCategoryId(categoryId);
+            result.setMatched(rs.getLong("matched"));
+            result.setAffected(rs.getLong("affected"));
+            result.setSkippedPrimary(rs.getLong("skipped_primary"));
+            return result;
+        });
+    }
+
+    @Override
+    public ProductFilterResultDto filterProducts(ProductFilterDto filter, CursorUtil.Cursor after, int fetchLimit) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String orderBy = orderBy(filter.getSort());
+        params.addValue("limit", fetchLimit);
+
+        // Una sola consulta: la página de productos y cada faceta se devuelven como filas
+        // distinguidas por "kind" y unidas con UNION ALL sobre el mismo CTE base
+        String sql = "WITH base AS (" + baseSelect(filter, params) + "), " +
+                "page AS (" +
+                "  SELECT b.id, ROW_NUMBER() OVER (ORDER BY " + orderBy + ") AS ord" +
+                "  FROM base b WHERE b.m_cat AND b.m_price AND b.m_stock" + keysetPredicate(filter.getSort(), after, params) +
+                "  ORDER BY " + orderBy + " LIMIT :limit" +
+                ") " +
+                "SELECT '" + KIND_ITEM + "' AS kind, pg.ord AS ord, p.id, p.name, p.description, p.price, p.stock, " +
+                "       p.image_url, p.active, c.id AS category_id, c.name AS category_name, p.created_at, NULL::bigint AS cnt " +
+                "FROM page pg JOIN products p ON p.id = pg.id JOIN categories c ON c.id = p.category_id " +
+                "UNION ALL " +
+                "SELECT '" + KIND_CATEGORY + "', NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, f.category_id, c.name, NULL, f.cnt " +
+                "FROM (SELECT x.category_id, COUNT(*) AS cnt FROM (" +
+                "        SELECT b.id, b.category_id FROM base b WHERE b.m_price AND b.m_stock" +
+                "        UNION" +
+                "        SELECT b.id, pc.category_id FROM base b JOIN product_categories pc ON pc.product_id = b.id" +
+                "        WHERE b.m_price AND b.m_stock" +
+                "      ) x GROUP BY x.category_id) f " +
+                "JOIN categories c ON c.id = f.category_id " +
+                "UNION ALL " +
+                "SELECT '" + KIND_PRICE + "', b.bucket, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, COUNT(*) " +
+                "FROM base b WHERE b.m_cat AND b.m_stock GROUP BY b.bucket " +
+                "UNION ALL " +
+                "SELECT '" + KIND_IN_STOCK + "', NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, COUNT(*) " +
+                "FROM base b WHERE b.m_cat AND b.m_price AND b.stock > 0 " +
+                "UNION ALL " +
+                "SELECT '" + KIND_TOTAL + "', NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, COUNT(*) " +
+                "FROM base b WHERE b.m_cat AND b.m_price AND b.m_stock";
+
+        Map<Long, ProductDto> items = new TreeMap<>();
+        ProductFacetsDto facets = new ProductFacetsDto();
+        facets.setPriceBuckets(emptyPriceBuckets());
+        long[] total = {0L};
+
+        jdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> {
+            switch (rs.getString("kind")) {
+                case KIND_ITEM -> items.put(rs.getLong("ord"), new ProductDto(
+                        rs.getLong("id"),
+                        rs.getString("name"),
+                        rs.getString("description"),
+                        rs.getBigDecimal("price"),
+                        rs.getInt("stock"),
+                        rs.getString("image_url"),
+                        rs.getBoolean("active"),
+                        rs.getLong("category_id"),
+                        rs.getString("category_name"),
+                        rs.getObject("created_at", LocalDateTime.class)));
+                case KIND_CATEGORY -> facets.getCategories().add(new ProductFacetsDto.CategoryFacet(
+                        rs.getLong("category_id"), rs.getString("category_name"), rs.getLong("cnt")));
+                case KIND_PRICE -> facets.getPriceBuckets().get(rs.getInt("ord")).setCount(rs.getLong("cnt"));
+                case KIND_IN_STOCK -> facets.setInStockCount(rs.getLong("cnt"));
+                case KIND_TOTAL -> total[0] = rs.getLong("cnt");
+                default -> { }
+            }
+        });
+
+        facets.getCategories().sort(Comparator
+                .comparing(ProductFacetsDto.CategoryFacet::getCount).reversed()
+                .thenComparing(ProductFacetsDto.CategoryFacet::getCategoryName));
+
+        List<ProductDto> content = new ArrayList<>(items.values());
+        return new ProductFilterResultDto(content, null, content.size(), false, total[0], facets);
+    }
+
+    // Productos candidatos con una columna booleana por criterio (m_cat, m_price, m_stock)
+    // y el tramo de precio, para que cada faceta pueda prescindir de su propio criterio
+    private String baseSelect(ProductFilterDto filter, MapSqlParameterSource params) {
+        StringBuilder sql = new StringBuilder("SELECT p.id, p.price, p.stock, p.created_at, p.category_id, ");
+
+        if (filter.getCategoryId() != null) {
+            sql.append("(p.category_id = :categoryId OR EXISTS (SELECT 1 FROM product_categories pc ")
+               .append("WHERE pc.product_id = p.id AND pc.category_id = :categoryId)) AS m_cat, ");
+            params.addValue("categoryId", filter.getCategoryId());
+        } else {
+            sql.append("TRUE AS m_cat, ");
+        }
+
+        List<String> priceConditions = new ArrayList<>();
+        if (filter.getMinPrice() != null) {
+            priceConditions.add("p.price >= :minPrice");
+            params.addValue("minPrice", filter.getMinPrice());
+        }
+        if (filter.getMaxPrice() != null) {
+            priceConditions.add("p.price <= :maxPrice");
+            params.addValue("maxPrice", filter.getMaxPrice());
+        }
+        sql.append(priceConditions.isEmpty() ? "TRUE" : "(" + String.join(" AND ", priceConditions) + ")")
+           .append(" AS m_price, ");
+
+        sql.append(Boolean.TRUE.equals(filter.getInStock()) ? "(p.stock > 0)" : "TRUE").append(" AS m_stock, ");
+
+        sql.append("CASE");
+        for (int i = 0; i < priceBucketBounds.size(); i++) {
+            sql.append(" WHEN p.price < :priceBound").append(i).append(" THEN ").append(i);
+            params.addValue("priceBound" + i, priceBucketBounds.get(i));
+        }
+        sql.append(" ELSE ").append(priceBucketBounds.size()).append(" END AS bucket ");
+
+        sql.append("FROM products p");
+        if (filter.getActive() != null) {
+            sql.append(" WHERE p.active = :active");
+            params.addValue("active", filter.getActive());
+        }
+        return sql.toString();
+    }
+
+    private String orderBy(String sort) {
+        return switch (sort) {
+            case ProductFilterDto.SORT_PRICE_ASC -> "b.price ASC, b.id ASC";
+            case ProductFilterDto.SORT_PRICE_DESC -> "b.price DESC, b.id DESC";
+            case ProductFilterDto.SORT_NEWEST -> "b.created_at DESC, b.id DESC";
+            default -> "b.id ASC";
+        };
+    }
+
+    private String keysetPredicate(String sort, CursorUtil.Cursor after, MapSqlParameterSource params) {
+        if (after == null) {
+            return "";
+        }
+        params.addValue("afterId", after.id());
+        return switch (sort) {
+            case ProductFilterDto.SORT_PRICE_ASC -> {
+                params.addValue("afterKey", after.sortKeyAsDecimal());
+                yield " AND (b.price > :afterKey OR (b.price = :afterKey AND b.id > :afterId))";
+            }
+            case ProductFilterDto.SORT_PRICE_DESC -> {
+                params.addValue("afterKey", after.sortKeyAsDecimal());
+                yield " AND (b.price < :afterKey OR (b.price = :afterKey AND b.id < :afterId))";
+            }
+            case ProductFilterDto.SORT_NEWEST -> {
+                params.addValue("afterKey", after.sortKeyAsDateTime());
+                yield " AND (b.created_at < :afterKey OR (b.created_at = :afterKey AND b.id < :afterId))";
+            }
+            default -> " AND b.id > :afterId";
+        };
+    }
+
+    private List<ProductFacetsDto.PriceBucket> emptyPriceBuckets() {
+        List<ProductFacetsDto.PriceBucket> buckets = new ArrayList<>();
+        BigDecimal from = BigDecimal.ZERO;
+        for (BigDecimal bound : priceBucketBounds) {
+            buckets.add(new ProductFacetsDto.PriceBucket(from, bound, 0L));
+            from = bound;
+        }
+        buckets.add(new ProductFacetsDto.PriceBucket(from, null, 0L));
+        return buckets;
+    }
+}
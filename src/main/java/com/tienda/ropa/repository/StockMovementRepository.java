@@ -0,0 +1,32 @@
+package com.tienda.ropa.repository;
+
+import com.tienda.ropa.dto.StockMovementDto;
+import com.tienda.ropa.model.StockMovement;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long>, StockMovementRepositoryCustom {
+
+    String MOVEMENT_DTO_SELECT = "SELECT new com.tienda.ropa.dto.StockMovementDto(m.id, m.productId, m.delta, " +
+            "m.stockAfter, CAST(m.reason AS String), m.createdAt) FROM StockMovement m ";
+
+    // Historial del producto, del más reciente al más antiguo (primera página)
+    @Query(MOVEMENT_DTO_SELECT + "WHERE m.productId = :productId ORDER BY m.createdAt DESC, m.id DESC")
+    List<StockMovementDto> findHistory(@Param("productId") Long productId, Pageable pageable);
+
+    // Páginas siguientes: movimientos anteriores al cursor (createdAt, id)
+    @Query(MOVEMENT_DTO_SELECT + "WHERE m.productId = :productId " +
+           "AND (m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<StockMovementDto> findHistoryBefore(@Param("productId") Long productId,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+}
@@ -0,0 +1,29 @@
+package com.tienda.ropa.repository;
+
+import com.tienda.ropa.dto.StockLevelDto;
+import com.tienda.ropa.model.StockMovement;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Consultas del diario de inventario en SQL nativo, ver StockMovementRepositoryImpl
+public interface StockMovementRepositoryCustom {
+
+    // Agrega un movimiento con la fecha de la base (mismo criterio que las escrituras por JDBC)
+    void insertMovement(Long productId, int delta, int stockAfter, StockMovement.Reason reason);
+
+    // Copia el stock actual de todos los productos en una nueva instantánea.
+    // Devuelve la cantidad de filas escritas.
+    int takeSnapshot();
+
+    // Anteriores a la fecha: conserva solo la primera instantánea de cada mes.
+    // Devuelve la cantidad de filas eliminadas.
+    int compactSnapshots(LocalDateTime before);
+
+    // Stock de un producto a la fecha: instantánea anterior más los movimientos posteriores
+    Optional<Integer> findStockAt(Long productId, LocalDateTime at);
+
+    // Inventario completo a la fecha, ordenado por id de producto
+    List<StockLevelDto> findInventoryAt(LocalDateTime at);
+}
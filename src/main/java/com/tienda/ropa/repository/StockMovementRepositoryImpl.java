@@ -0,0 +1,116 @@
+package com.tienda.ropa.repository;
+
+import com.tienda.ropa.dto.StockLevelDto;
+import com.tienda.ropa.model.StockMovement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Implementación de StockMovementRepositoryCustom (Spring Data la detecta por el sufijo Impl).
+// El stock a una fecha se arma con la última instantánea anterior y solo los movimientos
+// posteriores a ella: el último movimiento de cada producto trae su stock resultante
+// (stock_after), así que no hace falta sumar el diario completo.
+@RequiredArgsConstructor
+public class StockMovementRepositoryImpl implements StockMovementRepositoryCustom {
+
+    // Fecha de cada movimiento, tomada por la base al insertar la fila: se evalúa después de
+    // que el UPDATE del producto obtuvo el bloqueo de la fila, así que los movimientos de un
+    // mismo producto quedan en el orden en que se confirmaron (LOCALTIMESTAMP es el inicio
+    // de la transacción y no sirve para esto)
+    static final String MOVED_AT = "CAST(clock_timestamp() AS timestamp)";
+
+    // Última instantánea tomada hasta la fecha pedida
+    private static final String SNAPSHOT_CTE =
+            "snap AS (SELECT MAX(taken_at) AS taken_at FROM stock_snapshots WHERE taken_at <= :at)";
+
+    // Movimiento vigente a la fecha: el de mayor id entre los posteriores a la instantánea.
+    // El id (identity) sigue el orden de escritura de cada producto, que se serializa con el
+    // bloqueo de la fila; last_movement_id es el último movimiento ya incluido en la instantánea.
+    private static final String LATEST_MOVEMENT =
+            "SELECT m.stock_after FROM stock_movements m " +
+            "WHERE m.product_id = %s AND m.created_at <= :at AND m.id > COALESCE(%s, 0) " +
+            "ORDER BY m.id DESC LIMIT 1";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertMovement(Long productId, int delta, int stockAfter, StockMovement.Reason reason) {
+        jdbcTemplate.update(
+                "INSERT INTO stock_movements (product_id, delta, stock_after, reason, created_at) " +
+                "VALUES (:productId, :delta, :stockAfter, :reason, " + MOVED_AT + ")",
+                new MapSqlParameterSource("productId", productId)
+                        .addValue("delta", delta)
+                        .addValue("stockAfter", stockAfter)
+                        .addValue("reason", reason.name()));
+    }
+
+    // Una sola sentencia: el stock y el último movimiento de cada producto se leen de la misma
+    // vista de la base, así que la instantánea incluye exactamente los movimientos hasta
+    // last_movement_id (los que estaban sin confirmar tienen id mayor y se leen después).
+    // taken_at sale del mismo reloj que created_at de los movimientos (no del de la JVM) y se
+    // calcula una sola vez, para que todas las filas de la instantánea compartan la fecha
+    @Override
+    public int takeSnapshot() {
+        return jdbcTemplate.getJdbcTemplate().update(
+                "WITH now AS (SELECT " + MOVED_AT + " AS taken_at) " +
+                "INSERT INTO stock_snapshots (product_id, stock, last_movement_id, taken_at) " +
+                "SELECT p.id, p.stock, " +
+                "  (SELECT MAX(m.id) FROM stock_movements m WHERE m.product_id = p.id), now.taken_at " +
+                "FROM products p CROSS JOIN now");
+    }
+
+    @Override
+    public int compactSnapshots(LocalDateTime before) {
+        return jdbcTemplate.update(
+                "DELETE FROM stock_snapshots WHERE taken_at < :before AND taken_at NOT IN (" +
+                "  SELECT MIN(taken_at) FROM stock_snapshots WHERE taken_at < :before " +
+                "  GROUP BY date_trunc('month', taken_at))",
+                new MapSqlParameterSource("before", before));
+    }
+
+    @Override
+    public Optional<Integer> findStockAt(Long productId, LocalDateTime at) {
+        String sql = "WITH " + SNAPSHOT_CTE + ", " +
+                "base AS (SELECT s.stock, s.last_movement_id FROM stock_snapshots s JOIN snap ON s.taken_at = snap.taken_at " +
+                "  WHERE s.product_id = :productId) " +
+                "SELECT COALESCE(" +
+                "  (" + LATEST_MOVEMENT.formatted(":productId", "(SELECT last_movement_id FROM base)") + ")," +
+                "  (SELECT stock FROM base)" +
+                ") AS stock";
+        MapSqlParameterSource params = new MapSqlParameterSource("productId", productId).addValue("at", at);
+        return Optional.ofNullable(jdbcTemplate.queryForObject(sql, params, Integer.class));
+    }
+
+    // Productos: los de la instantánea, los actuales y los que tuvieron movimientos después de
+    // ella (creados y eliminados desde entonces). Para cada uno se busca su último movimiento
+    // posterior a la instantánea por índice (product_id, id).
+    @Override
+    public List<StockLevelDto> findInventoryAt(LocalDateTime at) {
+        String sql = "WITH " + SNAPSHOT_CTE + ", " +
+                "base AS (SELECT s.product_id, s.stock, s.last_movement_id FROM stock_snapshots s " +
+                "  JOIN snap ON s.taken_at = snap.taken_at), " +
+                "ids AS (" +
+                "  SELECT product_id FROM base " +
+                "  UNION SELECT id FROM products " +
+                "  UNION SELECT m.product_id FROM stock_movements m, snap " +
+                "  WHERE m.created_at <= :at AND (snap.taken_at IS NULL OR m.created_at > snap.taken_at)" +
+                "), " +
+                "levels AS (" +
+                "  SELECT i.product_id, COALESCE(d.stock_after, b.stock) AS stock FROM ids i " +
+                "  LEFT JOIN base b ON b.product_id = i.product_id " +
+                "  LEFT JOIN LATERAL (" + LATEST_MOVEMENT.formatted("i.product_id", "b.last_movement_id") + ") d ON TRUE" +
+                ") " +
+                "SELECT l.product_id, p.name, l.stock FROM levels l " +
+                "LEFT JOIN products p ON p.id = l.product_id " +
+                "WHERE l.stock IS NOT NULL " +
+                "ORDER BY 1";
+        return jdbcTemplate.query(sql, new MapSqlParameterSource("at", at), (rs, rowNum) -> new StockLevelDto(
+                rs.getLong("product_id"),
+                rs.getString("name"),
+                rs.getInt("stock")));
+    }
+}
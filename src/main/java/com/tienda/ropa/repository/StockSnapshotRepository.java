@@ -0,0 +1,16 @@
+package com.tienda.ropa.repository;
+
+import com.tienda.ropa.model.StockSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshot, Long> {
+
+    @Query("SELECT MAX(s.takenAt) FROM StockSnapshot s")
+    Optional<LocalDateTime> findLatestTakenAt();
+}
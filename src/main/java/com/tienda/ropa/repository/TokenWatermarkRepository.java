@@ -0,0 +1,22 @@
+package com.tienda.ropa.repository;
+
+import com.tienda.ropa.model.TokenWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TokenWatermarkRepository extends JpaRepository<TokenWatermark, Long> {
+
+    @Query("SELECT w FROM TokenWatermark w WHERE w.expiresAt > :now")
+    List<TokenWatermark> findActive(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM TokenWatermark w WHERE w.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
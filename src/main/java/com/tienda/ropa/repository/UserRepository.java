@@ -1,13 +1,19 @@
 package com.tienda.ropa.repository;
 
+import com.tienda.ropa.dto.UserDto;
+import com.tienda.ropa.model.Role;
 import com.tienda.ropa.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -32,6 +38,18 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u JOIN u.roles r WHERE r.name = 'ROLE_USER'")
     List<User> findAllRegularUsers();
     
+    // Proyección para transmisión: un usuario por fila, con ROLE_ADMIN por delante si tiene varios roles
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.tienda.ropa.dto.UserDto(u.id, u.username, u.email, u.enabled, u.locked, u.createdAt, " +
+           "COALESCE(MIN(CAST(r.name AS String)), 'ROLE_USER')) " +
+           "FROM User u LEFT JOIN u.roles r " +
+           "GROUP BY u.id, u.username, u.email, u.enabled, u.locked, u.createdAt ORDER BY u.id")
+    Stream<UserDto> streamAllDtos();
+    
+    // Estado de la cuenta sin cargar roles: [enabled, locked]
+    @Query("SELECT u.enabled, u.locked FROM User u WHERE u.id = :id")
+    List<Object[]> findStatusById(@Param("id") Long id);
+    
     @Query("SELECT COUNT(u) FROM User u JOIN u.roles r WHERE r.name = :roleName")
-    Long countByRole(@Param("roleName") String roleName);
+    Long countByRole(@Param("roleName") Role.RoleName roleName);
 }
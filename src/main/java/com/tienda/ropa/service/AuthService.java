@@ -22,6 +22,7 @@ public class AuthService {
     private final AuthenticationManager authenticationManager;
     private final UserService userService;
     private final JwtUtil jwtUtil;
+    private final RefreshTokenService refreshTokenService;
 
     @Transactional
     public AuthResponse login(LoginRequest loginRequest) {
@@ -36,13 +37,13 @@ public class AuthService {
         // Cargar detalles del usuario
         UserDetails userDetails = userService.loadUserByUsername(loginRequest.getUsername());
         
-        // Generar token JWT
-        String token = jwtUtil.generateToken(userDetails);
-
         // Obtener información del usuario
         User user = userService.getUserByUsername(loginRequest.getUsername())
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
+        // Generar token JWT (con roles e id de usuario)
+        String token = jwtUtil.generateToken(userDetails, user.getId());
+
         String role = user.getRoles().stream()
                 .map(r -> r.getName().name())
                 .findFirst()
@@ -52,6 +53,7 @@ public class AuthService {
 
         return AuthResponse.builder()
                 .token(token)
+                .refreshToken(refreshTokenService.issue(user.getId()))
                 .username(user.getUsername())
                 .email(user.getEmail())
                 .role(role)
@@ -78,7 +80,7 @@ public class AuthService {
 
         // Generar token JWT
         UserDetails userDetails = userService.loadUserByUsername(user.getUsername());
-        String token = jwtUtil.generateToken(userDetails);
+        String token = jwtUtil.generateToken(userDetails, user.getId());
 
         String role = user.getRoles().stream()
                 .map(r -> r.getName().name())
@@ -89,6 +91,7 @@ public class AuthService {
 
         return AuthResponse.builder()
                 .token(token)
+                .refreshToken(refreshTokenService.issue(user.getId()))
                 .username(user.getUsername())
                 .email(user.getEmail())
                 .role(role)
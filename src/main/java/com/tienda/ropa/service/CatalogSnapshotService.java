@@ -0,0 +1,142 @@
+package com.tienda.ropa.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tienda.ropa.dto.CategoryDto;
+import com.tienda.ropa.dto.ProductDto;
+import com.tienda.ropa.event.CatalogChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@Slf4j
+public class CatalogSnapshotService {
+
+    private final ProductService productService;
+    private final CategoryService categoryService;
+    private final CatalogVersionService catalogVersionService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    // Un solo hilo: las reconstrucciones nunca se solapan
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean(false);
+
+    private volatile Snapshot productsSnapshot;
+    private volatile Snapshot categoriesSnapshot;
+
+    public CatalogSnapshotService(ProductService productService,
+                                  CategoryService categoryService,
+                                  CatalogVersionService catalogVersionService,
+                                  ObjectMapper objectMapper,
+                                  PlatformTransactionManager transactionManager) {
+        this.productService = productService;
+        this.categoryService = categoryService;
+        this.catalogVersionService = catalogVersionService;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        requestRebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        requestRebuild();
+    }
+
+    // Solo se devuelve la instantánea si corresponde a la versión vigente del catálogo
+    public Optional<Snapshot> getProductsSnapshot() {
+        return currentOrEmpty(productsSnapshot);
+    }
+
+    public Optional<Snapshot> getCategoriesSnapshot() {
+        return currentOrEmpty(categoriesSnapshot);
+    }
+
+    // Agrupa varias escrituras seguidas en una sola reconstrucción
+    public void requestRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                rebuildScheduled.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    private void rebuild() {
+        try {
+            // La versión se lee antes de consultar: el contenido nunca es más antiguo que su versión
+            long version = catalogVersionService.getCurrentVersion();
+
+            List<ProductDto> products = readOnlyTransaction.execute(status -> productService.getAllActiveProducts());
+            List<CategoryDto> categories = readOnlyTransaction.execute(status -> categoryService.getAllActiveCategories());
+
+            productsSnapshot = buildSnapshot(version, products);
+            categoriesSnapshot = buildSnapshot(version, categories);
+
+            log.info("Instantánea del catálogo v{} generada: {} productos ({} bytes, {} gzip), {} categorías",
+                    version, products.size(), productsSnapshot.json().length,
+                    productsSnapshot.gzip().length, categories.size());
+        } catch (Exception e) {
+            log.error("Error generando la instantánea del catálogo: {}", e.getMessage());
+        }
+    }
+
+    private Snapshot buildSnapshot(long version, Object body) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(baos)) {
+            gzip.write(json);
+        }
+        return new Snapshot(version, json, baos.toByteArray(), LocalDateTime.now());
+    }
+
+    // Una versión más nueva puede venir de otra instancia, que no publica eventos aquí:
+    // se pide la reconstrucción al detectarla
+    private Optional<Snapshot> currentOrEmpty(Snapshot snapshot) {
+        if (snapshot == null) {
+            return Optional.empty();
+        }
+        if (snapshot.version() != catalogVersionService.getCurrentVersion()) {
+            requestRebuild();
+            return Optional.empty();
+        }
+        return Optional.of(snapshot);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Los arreglos no se modifican después de construirse la instantánea
+    public record Snapshot(long version, byte[] json, byte[] gzip, LocalDateTime builtAt) {
+
+        public byte[] body(boolean gzipEncoded) {
+            return gzipEncoded ? gzip : json;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.tienda.ropa.service;
+
+import com.tienda.ropa.event.UserChangedEvent;
+import com.tienda.ropa.model.Role;
+import com.tienda.ropa.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Contadores de los endpoints /stats mantenidos en memoria: las consultas no tocan la base.
+// Los de productos los actualiza LowStockTracker con cada cambio y él mismo los concilia en su
+// hilo; los de usuarios, los eventos de UserService, con una conciliación periódica contra la base.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogStatisticsService {
+
+    private final UserRepository userRepository;
+
+    // Debe coincidir con el de LowStockTracker
+    @Value("${app.inventory.low-stock-threshold:5}")
+    private int lowStockThreshold;
+
+    private final AtomicLong totalProducts = new AtomicLong();
+    private final AtomicLong activeProducts = new AtomicLong();
+    // Stock sumado de los productos activos
+    private final AtomicLong totalStock = new AtomicLong();
+    private final AtomicLong lowStockProducts = new AtomicLong();
+    private final AtomicLong totalUsers = new AtomicLong();
+    // Mapa fijo (una entrada por rol): solo cambian los valores
+    private final Map<Role.RoleName, AtomicLong> usersByRole = createRoleCounters();
+
+    private static Map<Role.RoleName, AtomicLong> createRoleCounters() {
+        Map<Role.RoleName, AtomicLong> counters = new EnumMap<>(Role.RoleName.class);
+        for (Role.RoleName roleName : Role.RoleName.values()) {
+            counters.put(roleName, new AtomicLong());
+        }
+        return counters;
+    }
+
+    // =================== LECTURA ===================
+
+    public Map<String, Object> getProductStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalProducts", totalProducts.get());
+        stats.put("activeProducts", activeProducts.get());
+        stats.put("totalStock", totalStock.get());
+        stats.put("lowStockProducts", lowStockProducts.get());
+        return stats;
+    }
+
+    public Map<String, Object> getUserStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalUsers", totalUsers.get());
+        stats.put("adminUsers", usersByRole.get(Role.RoleName.ROLE_ADMIN).get());
+        stats.put("regularUsers", usersByRole.get(Role.RoleName.ROLE_USER).get());
+        return stats;
+    }
+
+    // =================== PRODUCTOS (desde LowStockTracker) ===================
+
+    // previous o current es null si el producto no existía o dejó de existir
+    void applyProductChange(LowStockTracker.ProductLevel previous, LowStockTracker.ProductLevel current) {
+        if (previous != null) {
+            addProduct(previous, -1);
+        }
+        if (current != null) {
+            addProduct(current, 1);
+        }
+    }
+
+    void resetProducts(LowStockTracker.ProductTotals totals) {
+        totalProducts.set(totals.total());
+        activeProducts.set(totals.active());
+        totalStock.set(totals.stock());
+        lowStockProducts.set(totals.lowStock());
+    }
+
+    // Totales calculados por LowStockTracker con su propio estado: un desvío aquí es un error
+    // de contabilidad, no una escritura en curso. Solo se registra; resetProducts lo corrige.
+    void verifyProducts(LowStockTracker.ProductTotals expected) {
+        logDrift("totalProducts", totalProducts.get(), expected.total());
+        logDrift("activeProducts", activeProducts.get(), expected.active());
+        logDrift("totalStock", totalStock.get(), expected.stock());
+        logDrift("lowStockProducts", lowStockProducts.get(), expected.lowStock());
+    }
+
+    private void addProduct(LowStockTracker.ProductLevel level, int sign) {
+        totalProducts.addAndGet(sign);
+        if (level.active()) {
+            activeProducts.addAndGet(sign);
+            totalStock.addAndGet((long) sign * level.stock());
+            if (level.stock() <= lowStockThreshold) {
+                lowStockProducts.addAndGet(sign);
+            }
+        }
+    }
+
+    // =================== USUARIOS ===================
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        int sign = event.type() == UserChangedEvent.Type.CREATED ? 1 : -1;
+        totalUsers.addAndGet(sign);
+        if (event.roles() != null) {
+            event.roles().forEach(roleName -> usersByRole.get(roleName).addAndGet(sign));
+        }
+    }
+
+    // =================== CONCILIACIÓN ===================
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void onApplicationReady() {
+        reconcileUsers(false);
+    }
+
+    // Los contadores de productos los concilia LowStockTracker (requestReconcile)
+    @Scheduled(cron = "${app.stats.reconcile-cron:0 */15 * * * *}")
+    @Transactional(readOnly = true)
+    public void reconcile() {
+        reconcileUsers(true);
+    }
+
+    // Al arrancar los contadores de usuarios parten de la base (sin registrar desvíos)
+    private void reconcileUsers(boolean logDrift) {
+        correct("totalUsers", totalUsers, userRepository.count(), logDrift);
+        for (Map.Entry<Role.RoleName, AtomicLong> entry : usersByRole.entrySet()) {
+            correct(entry.getKey().name(), entry.getValue(), userRepository.countByRole(entry.getKey()), logDrift);
+        }
+    }
+
+    // Una escritura confirmada entre la consulta y el ajuste puede dejar una diferencia
+    // transitoria; la próxima conciliación la corrige
+    private void correct(String counter, AtomicLong value, long actual, boolean logDrift) {
+        long previous = value.getAndSet(actual);
+        if (logDrift) {
+            logDrift(counter, previous, actual);
+        }
+    }
+
+    private void logDrift(String counter, long previous, long actual) {
+        if (previous != actual) {
+            log.warn("Estadística {} corregida en la conciliación: {} → {}", counter, previous, actual);
+        }
+    }
+}
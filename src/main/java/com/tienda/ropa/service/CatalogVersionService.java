@@ -0,0 +1,126 @@
+package com.tienda.ropa.service;
+
+import com.tienda.ropa.event.CatalogChangedEvent;
+import com.tienda.ropa.model.CatalogVersion;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Versión del catálogo para ETags e instantáneas. Vive en la fila catalog_version, compartida
+// entre instancias: cada transacción que publica CatalogChangedEvent la incrementa una vez
+// justo antes de su commit, así que la versión nueva se hace visible junto con los datos.
+// Cada instancia guarda la última versión leída y la vuelve a leer si tiene más de
+// app.catalog.version-max-age; sus propias escrituras la actualizan al instante.
+@Service
+@Slf4j
+public class CatalogVersionService {
+
+    private static final String INSERT_INITIAL = """
+            INSERT INTO catalog_version (id, version) VALUES (?, ?)
+            ON CONFLICT (id) DO NOTHING
+            """;
+    private static final String INCREMENT = "UPDATE catalog_version SET version = version + 1 WHERE id = ? RETURNING version";
+    private static final String SELECT = "SELECT version FROM catalog_version WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long maxAgeNanos;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile long readAt;
+
+    // EntityManagerFactory solo se pide para que Hibernate haya creado la tabla
+    public CatalogVersionService(JdbcTemplate jdbcTemplate,
+                                 EntityManagerFactory entityManagerFactory,
+                                 @Value("${app.catalog.version-max-age:1s}") Duration maxAge) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxAgeNanos = maxAge.toNanos();
+    }
+
+    // La primera versión es la hora de creación de la fila: no se repiten versiones aunque la
+    // tabla se vuelva a crear
+    @PostConstruct
+    void init() {
+        jdbcTemplate.update(INSERT_INITIAL, CatalogVersion.SINGLETON_ID, System.currentTimeMillis());
+        refresh();
+    }
+
+    public long getCurrentVersion() {
+        if (System.nanoTime() - readAt > maxAgeNanos) {
+            try {
+                refresh();
+            } catch (Exception e) {
+                // Sin base se sigue sirviendo la última versión conocida
+                log.warn("No se pudo leer la versión del catálogo: {}", e.getMessage());
+            }
+        }
+        return version.get();
+    }
+
+    // Se ejecuta al publicarse el evento, dentro de la transacción que escribe
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(increment(), event);
+            return;
+        }
+        // Una sola vez por transacción, aunque publique varios eventos (reserveAll)
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long committedVersion;
+
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                committedVersion = increment();
+            }
+
+            // Antes que los demás oyentes posteriores al commit (instantáneas, índices)
+            @Override
+            public void afterCommit() {
+                publish(committedVersion, event);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CatalogVersionService.this);
+            }
+        });
+    }
+
+    private long increment() {
+        Long next = jdbcTemplate.queryForObject(INCREMENT, Long.class, CatalogVersion.SINGLETON_ID);
+        return next != null ? next : version.get();
+    }
+
+    private void refresh() {
+        Long current = jdbcTemplate.queryForObject(SELECT, Long.class, CatalogVersion.SINGLETON_ID);
+        if (current != null) {
+            version.accumulateAndGet(current, Math::max);
+        }
+        readAt = System.nanoTime();
+    }
+
+    private void publish(long newVersion, CatalogChangedEvent event) {
+        version.accumulateAndGet(newVersion, Math::max);
+        log.debug("Versión del catálogo {} por cambio en {} {}", newVersion, event.type(), event.entityId());
+    }
+}
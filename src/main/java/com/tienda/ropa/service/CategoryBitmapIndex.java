@@ -0,0 +1,316 @@
+package com.tienda.ropa.service;
+
+import com.tienda.ropa.event.CatalogChangedEvent;
+import com.tienda.ropa.repository.ProductCategoryRepository;
+import com.tienda.ropa.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Pertenencia de productos a categorías (principal o secundaria) como bitmaps comprimidos:
+// id de categoría → ids de producto, más un bitmap de activos y otro de con stock. Las
+// combinaciones "en A y B y con stock" o "en A, B o C" se resuelven con operaciones de bits.
+// Se carga al arrancar y se actualiza tras cada escritura de producto, stock o relación. Un
+// cambio de stock solo mueve el bit de "con stock", con el valor que trae el evento.
+// Los ids de producto se guardan como int (RoaringBitmap es de 32 bits). Si aparece un id
+// fuera de ese rango el índice se desactiva (isReady() falso) y ProductService resuelve las
+// combinaciones en SQL; una reconstrucción posterior lo vuelve a activar si ya no quedan.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CategoryBitmapIndex {
+
+    private final ProductRepository productRepository;
+    private final ProductCategoryRepository productCategoryRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Serializa lectura en base + aplicación, igual que LowStockTracker
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private final Map<Long, RoaringBitmap> byCategory = new HashMap<>();
+    private final RoaringBitmap active = new RoaringBitmap();
+    private final RoaringBitmap inStock = new RoaringBitmap();
+    private volatile boolean ready = false;
+    // Hay ids fuera del rango int; solo se modifica con updateLock tomado
+    private boolean disabled = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.entityId() == null) {
+            rebuild();
+        } else if (event.type() == CatalogChangedEvent.Type.STOCK && event.stock() != null) {
+            updateInStock(event.entityId(), event.stock() > 0);
+        } else if (event.type() == CatalogChangedEvent.Type.CATEGORY) {
+            refreshCategory(event.entityId());
+        } else {
+            refreshProduct(event.entityId());
+        }
+    }
+
+    // Productos activos que están en todas las categorías de allOf y, si anyOf no está vacío,
+    // en al menos una de anyOf. Devuelve hasta limit ids mayores que afterId, ascendentes.
+    public List<Long> find(Collection<Long> allOf, Collection<Long> anyOf, boolean inStockOnly, long afterId, int limit) {
+        lock.readLock().lock();
+        RoaringBitmap result;
+        try {
+            result = evaluate(allOf, anyOf, inStockOnly);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Long> ids = new ArrayList<>(Math.min(limit, result.getCardinality()));
+        PeekableIntIterator it = result.getIntIterator();
+        if (afterId >= 0) {
+            it.advanceIfNeeded((int) Math.min(afterId + 1, Integer.MAX_VALUE));
+        }
+        while (it.hasNext() && ids.size() < limit) {
+            ids.add((long) it.next());
+        }
+        return ids;
+    }
+
+    // Se opera sobre copias: los bitmaps del índice no se modifican
+    private RoaringBitmap evaluate(Collection<Long> allOf, Collection<Long> anyOf, boolean inStockOnly) {
+        List<RoaringBitmap> filters = new ArrayList<>();
+        for (Long categoryId : allOf) {
+            RoaringBitmap members = byCategory.get(categoryId);
+            if (members == null) {
+                return new RoaringBitmap();
+            }
+            filters.add(members);
+        }
+        if (!anyOf.isEmpty()) {
+            List<RoaringBitmap> alternatives = new ArrayList<>();
+            for (Long categoryId : anyOf) {
+                RoaringBitmap members = byCategory.get(categoryId);
+                if (members != null) {
+                    alternatives.add(members);
+                }
+            }
+            if (alternatives.isEmpty()) {
+                return new RoaringBitmap();
+            }
+            filters.add(FastAggregation.or(alternatives.iterator()));
+        }
+        filters.add(active);
+        if (inStockOnly) {
+            filters.add(inStock);
+        }
+        return FastAggregation.and(filters.iterator());
+    }
+
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        updateLock.lock();
+        try {
+            List<Object[]> products = productRepository.findCategoryIndexFields();
+            List<Object[]> memberships = productCategoryRepository.findAllMemberships();
+
+            Map<Long, RoaringBitmap> categories = new HashMap<>();
+            RoaringBitmap activeIds = new RoaringBitmap();
+            RoaringBitmap inStockIds = new RoaringBitmap();
+            for (Object[] row : products) {
+                if (!fitsIndex((Long) row[0])) {
+                    disable((Long) row[0]);
+                    return;
+                }
+                int productId = toIndex((Long) row[0]);
+                if (Boolean.TRUE.equals(row[2])) {
+                    activeIds.add(productId);
+                }
+                if (row[1] != null && (Integer) row[1] > 0) {
+                    inStockIds.add(productId);
+                }
+                if (row[3] != null) {
+                    categories.computeIfAbsent((Long) row[3], id -> new RoaringBitmap()).add(productId);
+                }
+            }
+            for (Object[] row : memberships) {
+                if (!fitsIndex((Long) row[1])) {
+                    disable((Long) row[1]);
+                    return;
+                }
+                categories.computeIfAbsent((Long) row[0], id -> new RoaringBitmap()).add(toIndex((Long) row[1]));
+            }
+            categories.values().forEach(RoaringBitmap::runOptimize);
+            activeIds.runOptimize();
+            inStockIds.runOptimize();
+
+            lock.writeLock().lock();
+            try {
+                byCategory.clear();
+                byCategory.putAll(categories);
+                active.clear();
+                active.or(activeIds);
+                inStock.clear();
+                inStock.or(inStockIds);
+                disabled = false;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Índice de categorías cargado: {} productos, {} categorías en {} ms",
+                    products.size(), categories.size(), System.currentTimeMillis() - start);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    public void refreshProduct(Long productId) {
+        updateLock.lock();
+        try {
+            if (disabled) {
+                return;
+            }
+            if (!fitsIndex(productId)) {
+                disable(productId);
+                return;
+            }
+            int id = toIndex(productId);
+            List<Object[]> rows = productRepository.findCategoryIndexFieldsById(productId);
+            List<Long> categoryIds = rows.isEmpty()
+                    ? List.of()
+                    : new ArrayList<>(productCategoryRepository.findCategoryIdsByProductId(productId));
+            if (!rows.isEmpty() && rows.get(0)[2] != null) {
+                categoryIds.add((Long) rows.get(0)[2]);
+            }
+
+            lock.writeLock().lock();
+            try {
+                byCategory.values().forEach(members -> members.remove(id));
+                active.remove(id);
+                inStock.remove(id);
+                if (!rows.isEmpty()) {
+                    Object[] row = rows.get(0);
+                    if (Boolean.TRUE.equals(row[1])) {
+                        active.add(id);
+                    }
+                    if (row[0] != null && (Integer) row[0] > 0) {
+                        inStock.add(id);
+                    }
+                    for (Long categoryId : categoryIds) {
+                        byCategory.computeIfAbsent(categoryId, key -> new RoaringBitmap()).add(id);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    // Sin consultas: se llama desde el hilo que confirmó la escritura. Si dos eventos del mismo
+    // producto llegan desordenados, LowStockTracker corrige el bit con el stock que relee.
+    public void updateInStock(Long productId, boolean hasStock) {
+        updateLock.lock();
+        try {
+            if (disabled) {
+                return;
+            }
+            if (!fitsIndex(productId)) {
+                disable(productId);
+                return;
+            }
+            int id = toIndex(productId);
+            lock.writeLock().lock();
+            try {
+                if (hasStock) {
+                    inStock.add(id);
+                } else {
+                    inStock.remove(id);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    // Altas, bajas y limpieza de relaciones de una categoría
+    public void refreshCategory(Long categoryId) {
+        updateLock.lock();
+        try {
+            if (disabled) {
+                return;
+            }
+            List<Long> ids = new ArrayList<>(productRepository.findIdsByPrimaryCategoryId(categoryId));
+            ids.addAll(productCategoryRepository.findProductIdsByCategoryId(categoryId));
+            RoaringBitmap members = new RoaringBitmap();
+            for (Long id : ids) {
+                if (!fitsIndex(id)) {
+                    disable(id);
+                    return;
+                }
+                members.add(toIndex(id));
+            }
+            members.runOptimize();
+
+            lock.writeLock().lock();
+            try {
+                if (members.isEmpty()) {
+                    byCategory.remove(categoryId);
+                } else {
+                    byCategory.put(categoryId, members);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    // Con updateLock tomado. Se vacían los bitmaps: ya no se consultan ni se actualizan
+    private void disable(Long productId) {
+        if (!disabled) {
+            log.error("Id de producto {} fuera del rango del índice de categorías; " +
+                    "las combinaciones de categorías se resuelven en SQL", productId);
+        }
+        disabled = true;
+        ready = false;
+        lock.writeLock().lock();
+        try {
+            byCategory.clear();
+            active.clear();
+            inStock.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean fitsIndex(Long productId) {
+        return productId >= 0 && productId <= Integer.MAX_VALUE;
+    }
+
+    private static int toIndex(Long productId) {
+        return productId.intValue();
+    }
+}
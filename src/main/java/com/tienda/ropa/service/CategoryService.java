@@ -1,10 +1,18 @@
 package com.tienda.ropa.service;
 
+import com.tienda.ropa.config.CacheConfig;
 import com.tienda.ropa.dto.CategoryDto;
+import com.tienda.ropa.event.CatalogChangedEvent;
 import com.tienda.ropa.model.Category;
 import com.tienda.ropa.repository.CategoryRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,20 +26,38 @@ public class CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final ProductCategoryService productCategoryService;
+    private final EntityCacheService entityCacheService;
+    private final ApplicationEventPublisher eventPublisher;
 
+    // Los listados se proyectan directamente a CategoryDto (con su conteo de productos)
     @Transactional(readOnly = true)
-    public List<Category> getAllCategories() {
-        return categoryRepository.findAll();
+    public List<CategoryDto> getAllCategories() {
+        return categoryRepository.findAllDtos();
     }
 
     @Transactional(readOnly = true)
-    public List<Category> getAllActiveCategories() {
+    public List<CategoryDto> getAllActiveCategories() {
         return categoryRepository.findAllActiveCategories();
     }
 
     @Transactional(readOnly = true)
+    public Long getTotalCategories() {
+        return categoryRepository.count();
+    }
+
+    @Transactional(readOnly = true)
+    public Long getTotalActiveCategories() {
+        return categoryRepository.countActiveCategories();
+    }
+
+    @Transactional(readOnly = true)
+    public Long getCategoriesWithProductsCount() {
+        return categoryRepository.countCategoriesWithProducts();
+    }
+
+    // Lectura con cache: la entidad devuelta es de solo lectura
     public Optional<Category> getCategoryById(Long id) {
-        return categoryRepository.findById(id);
+        return entityCacheService.findCategory(id);
     }
 
     @Transactional(readOnly = true)
@@ -52,12 +78,18 @@ public class CategoryService {
         category.setActive(true);
 
         Category savedCategory = categoryRepository.save(category);
+        publishCategoryChanged(savedCategory.getId());
         log.info("Categoría creada: {}", savedCategory.getName());
         
         return savedCategory;
     }
 
+    // Los productos en cache llevan el nombre de su categoría, por eso también se desalojan
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.CATEGORIES_CACHE, key = "#id"),
+            @CacheEvict(value = CacheConfig.PRODUCTS_CACHE, allEntries = true)
+    })
     public Category updateCategory(Long id, CategoryDto categoryDto) {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Categoría no encontrada"));
@@ -77,19 +109,23 @@ public class CategoryService {
         }
 
         Category updatedCategory = categoryRepository.save(category);
+        publishCategoryChanged(id);
         log.info("Categoría actualizada: {}", updatedCategory.getName());
         
         return updatedCategory;
     }
 
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.CATEGORIES_CACHE, key = "#id"),
+            @CacheEvict(value = CacheConfig.PRODUCTS_CACHE, allEntries = true)
+    })
     public void deleteCategory(Long id) {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Categoría no encontrada"));
 
         // Verificar si tiene productos asociados
-        Long productCount = productCategoryService.getProductCountByCategory(id);
-        if (productCount > 0) {
+        if (category.getProductCount() > 0) {
             throw new RuntimeException("No se puede eliminar la categoría porque tiene productos asociados");
         }
 
@@ -97,21 +133,24 @@ public class CategoryService {
         productCategoryService.cleanupCategoryRelations(id);
         
         categoryRepository.delete(category);
+        publishCategoryChanged(id);
         log.info("Categoría eliminada: {}", category.getName());
     }
 
     @Transactional
+    @CacheEvict(value = CacheConfig.CATEGORIES_CACHE, key = "#id")
     public void toggleCategoryStatus(Long id) {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Categoría no encontrada"));
 
         category.setActive(!category.getActive());
         categoryRepository.save(category);
+        publishCategoryChanged(id);
         log.info("Categoría {} {}", category.getName(), category.getActive() ? "activada" : "desactivada");
     }
 
     @Transactional(readOnly = true)
-    public List<Category> searchCategoriesByName(String name) {
+    public List<CategoryDto> searchCategoriesByName(String name) {
         return categoryRepository.findByNameContainingIgnoreCase(name);
     }
 
@@ -120,6 +159,40 @@ public class CategoryService {
         return productCategoryService.getProductCountByCategory(categoryId);
     }
 
+    // =================== CONCILIACIÓN DE product_count ===================
+    // Al arrancar también sirve de relleno inicial cuando la columna se acaba de crear
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    @CacheEvict(value = CacheConfig.CATEGORIES_CACHE, allEntries = true)
+    public void onApplicationReady() {
+        reconcile();
+    }
+
+    @Scheduled(cron = "${app.categories.count-reconcile-cron:0 30 * * * *}")
+    @Transactional
+    @CacheEvict(value = CacheConfig.CATEGORIES_CACHE, allEntries = true)
+    public void reconcileProductCounts() {
+        reconcile();
+    }
+
+    private void reconcile() {
+        long start = System.currentTimeMillis();
+        int corrected = categoryRepository.reconcileProductCounts();
+        if (corrected > 0) {
+            log.warn("Contadores de productos por categoría corregidos: {} categorías en {} ms",
+                    corrected, System.currentTimeMillis() - start);
+            // productCount cambió: nueva versión del catálogo (ETag, instantánea, cache L2)
+            eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.CATEGORY, null));
+        } else {
+            log.debug("Contadores de productos por categoría sin diferencias");
+        }
+    }
+
+    private void publishCategoryChanged(Long categoryId) {
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.CATEGORY, categoryId));
+    }
+
     // Convertir Category a CategoryDto
     public CategoryDto convertToDto(Category category) {
         CategoryDto dto = new CategoryDto();
@@ -128,7 +201,7 @@ public class CategoryService {
         dto.setDescription(category.getDescription());
         dto.setImageUrl(category.getImageUrl());
         dto.setActive(category.getActive());
-        dto.setProductCount(getProductCountByCategory(category.getId()));
+        dto.setProductCount(category.getProductCount());
         return dto;
     }
 }
\ No newline at end of file
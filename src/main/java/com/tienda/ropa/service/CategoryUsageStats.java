@@ -0,0 +1,209 @@
+package com.tienda.ropa.service;
+
+import com.tienda.ropa.dto.UsageRankingDto;
+import com.tienda.ropa.event.CatalogChangedEvent;
+import com.tienda.ropa.model.Category;
+import com.tienda.ropa.repository.CategoryRepository;
+import com.tienda.ropa.repository.ProductCategoryRepository;
+import com.tienda.ropa.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+// Conteos de product_categories en memoria (productos por categoría y categorías por
+// producto) para los rankings de uso. El top-K se obtiene con un montículo acotado a K,
+// sin ordenar todos los conteos, y el resultado con nombres se guarda hasta el siguiente
+// cambio del catálogo.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CategoryUsageStats {
+
+    // Mayor conteo primero; a igual conteo, menor id
+    private static final Comparator<Map.Entry<Long, Long>> RANKING = Comparator
+            .comparing(Map.Entry<Long, Long>::getValue).reversed()
+            .thenComparing(Map.Entry::getKey);
+
+    private static final String KIND_CATEGORIES = "categories";
+    private static final String KIND_PRODUCTS = "products";
+
+    private final ProductCategoryRepository productCategoryRepository;
+    private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Serializa lectura en base + aplicación, igual que LowStockTracker
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private final Map<Long, Long> productsByCategory = new HashMap<>();
+    // Categorías de cada producto, para descontar las anteriores al refrescarlo
+    private final Map<Long, List<Long>> categoriesByProduct = new HashMap<>();
+    // Cambia con cada actualización aplicada; invalida los rankings guardados
+    private volatile long version = 0;
+    private final Map<String, CachedRanking> rankings = new ConcurrentHashMap<>();
+    private volatile boolean ready = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    // Las bajas de categorías son raras: se recarga todo en lugar de buscar sus productos
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.type() == CatalogChangedEvent.Type.STOCK) {
+            return;
+        }
+        if (event.entityId() == null || event.type() == CatalogChangedEvent.Type.CATEGORY) {
+            reload();
+        } else {
+            refreshProduct(event.entityId());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<UsageRankingDto> topCategories(int limit) {
+        return ranking(KIND_CATEGORIES, limit, () -> topK(productsByCategory, Long::longValue, limit), ids -> {
+            Map<Long, String> names = new HashMap<>();
+            for (Category category : categoryRepository.findAllById(ids)) {
+                names.put(category.getId(), category.getName());
+            }
+            return names;
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public List<UsageRankingDto> topProducts(int limit) {
+        return ranking(KIND_PRODUCTS, limit, () -> topK(categoriesByProduct, List::size, limit), ids -> {
+            Map<Long, String> names = new HashMap<>();
+            for (Object[] row : productRepository.findNamesByIdIn(ids)) {
+                names.put((Long) row[0], (String) row[1]);
+            }
+            return names;
+        });
+    }
+
+    private List<UsageRankingDto> ranking(String kind, int limit, Supplier<List<Map.Entry<Long, Long>>> computeTop,
+                                          Function<List<Long>, Map<Long, String>> namesOf) {
+        if (!ready) {
+            throw new IllegalStateException("Las estadísticas de uso se están cargando, intente nuevamente");
+        }
+        String key = kind + ":" + limit;
+        long currentVersion = version;
+        CachedRanking cached = rankings.get(key);
+        if (cached != null && cached.version() == currentVersion) {
+            return cached.entries();
+        }
+
+        List<Map.Entry<Long, Long>> top;
+        lock.readLock().lock();
+        try {
+            top = computeTop.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Long> ids = top.stream().map(Map.Entry::getKey).toList();
+        Map<Long, String> names = ids.isEmpty() ? Map.of() : namesOf.apply(ids);
+        List<UsageRankingDto> entries = top.stream()
+                .map(e -> new UsageRankingDto(e.getKey(), names.get(e.getKey()), e.getValue()))
+                .toList();
+        // Si hubo cambios mientras se calculaba, la versión guardada ya no coincide y se recalcula
+        rankings.put(key, new CachedRanking(currentVersion, entries));
+        return entries;
+    }
+
+    // Montículo de mínimos con a lo sumo K elementos: O(n log K) en lugar de ordenar los n conteos
+    private static <V> List<Map.Entry<Long, Long>> topK(Map<Long, V> source, ToLongFunction<V> countOf, int k) {
+        PriorityQueue<Map.Entry<Long, Long>> heap = new PriorityQueue<>(k + 1, RANKING.reversed());
+        for (Map.Entry<Long, V> entry : source.entrySet()) {
+            Map.Entry<Long, Long> candidate = Map.entry(entry.getKey(), countOf.applyAsLong(entry.getValue()));
+            if (heap.size() < k) {
+                heap.add(candidate);
+            } else if (RANKING.compare(candidate, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(candidate);
+            }
+        }
+        List<Map.Entry<Long, Long>> top = new ArrayList<>(heap);
+        top.sort(RANKING);
+        return top;
+    }
+
+    public void reload() {
+        long start = System.currentTimeMillis();
+        updateLock.lock();
+        try {
+            List<Object[]> memberships = productCategoryRepository.findAllMemberships();
+            Map<Long, Long> categoryCounts = new HashMap<>();
+            Map<Long, List<Long>> productCategories = new HashMap<>();
+            for (Object[] row : memberships) {
+                Long categoryId = (Long) row[0];
+                categoryCounts.merge(categoryId, 1L, Long::sum);
+                productCategories.computeIfAbsent((Long) row[1], id -> new ArrayList<>()).add(categoryId);
+            }
+
+            lock.writeLock().lock();
+            try {
+                productsByCategory.clear();
+                productsByCategory.putAll(categoryCounts);
+                categoriesByProduct.clear();
+                categoriesByProduct.putAll(productCategories);
+                version++;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Estadísticas de uso de categorías cargadas: {} relaciones en {} ms",
+                    memberships.size(), System.currentTimeMillis() - start);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    public void refreshProduct(Long productId) {
+        updateLock.lock();
+        try {
+            List<Long> current = productCategoryRepository.findCategoryIdsByProductId(productId);
+
+            lock.writeLock().lock();
+            try {
+                List<Long> previous = current.isEmpty()
+                        ? categoriesByProduct.remove(productId)
+                        : categoriesByProduct.put(productId, current);
+                if (previous != null) {
+                    previous.forEach(categoryId ->
+                            productsByCategory.computeIfPresent(categoryId, (id, count) -> count > 1 ? count - 1 : null));
+                }
+                current.forEach(categoryId -> productsByCategory.merge(categoryId, 1L, Long::sum));
+                version++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private record CachedRanking(long version, List<UsageRankingDto> entries) {
+    }
+}
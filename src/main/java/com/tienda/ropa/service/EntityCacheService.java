@@ -0,0 +1,37 @@
+package com.tienda.ropa.service;
+
+import com.tienda.ropa.config.CacheConfig;
+import com.tienda.ropa.model.Category;
+import com.tienda.ropa.model.Product;
+import com.tienda.ropa.repository.CategoryRepository;
+import com.tienda.ropa.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+// Lecturas por id con cache de lectura. Las entidades devueltas están desacopladas
+// de la sesión y se comparten entre hilos: solo deben leerse, nunca modificarse.
+// Los desalojos se declaran en los métodos de escritura de ProductService y CategoryService.
+@Service
+@RequiredArgsConstructor
+public class EntityCacheService {
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+
+    @Cacheable(value = CacheConfig.PRODUCTS_CACHE, key = "#id", unless = "#result == null")
+    @Transactional(readOnly = true)
+    public Optional<Product> findProduct(Long id) {
+        // La entidad sale de la sesión: la categoría debe quedar cargada
+        return productRepository.findWithCategoryById(id);
+    }
+
+    @Cacheable(value = CacheConfig.CATEGORIES_CACHE, key = "#id", unless = "#result == null")
+    @Transactional(readOnly = true)
+    public Optional<Category> findCategory(Long id) {
+        return categoryRepository.findById(id);
+    }
+}
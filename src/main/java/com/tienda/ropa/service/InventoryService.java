@@ -0,0 +1,149 @@
+package com.tienda.ropa.service;
+
+import com.tienda.ropa.dto.CursorPageDto;
+import com.tienda.ropa.dto.StockLevelDto;
+import com.tienda.ropa.dto.StockMovementDto;
+import com.tienda.ropa.model.StockMovement;
+import com.tienda.ropa.repository.StockMovementRepository;
+import com.tienda.ropa.repository.StockSnapshotRepository;
+import com.tienda.ropa.util.CursorUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// Diario de inventario (stock_movements) e instantáneas periódicas (stock_snapshots).
+// Las escrituras por JDBC agregan su movimiento en la misma sentencia (ProductRepositoryImpl);
+// las que pasan por JPA lo registran con recordMovement dentro de su transacción.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryService {
+
+    private final StockMovementRepository stockMovementRepository;
+    private final StockSnapshotRepository stockSnapshotRepository;
+
+    @Value("${app.pagination.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-size:100}")
+    private int maxPageSize;
+
+    // Instantáneas diarias que se conservan; las anteriores se reducen a una por mes
+    @Value("${app.inventory.snapshot-retention-days:35}")
+    private int snapshotRetentionDays;
+
+    // Debe llamarse dentro de la transacción que cambia el stock
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordMovement(Long productId, Integer oldStock, Integer newStock, StockMovement.Reason reason) {
+        int before = oldStock != null ? oldStock : 0;
+        int after = newStock != null ? newStock : 0;
+        if (before == after && reason != StockMovement.Reason.CREATE) {
+            return;
+        }
+        stockMovementRepository.insertMovement(productId, after - before, after, reason);
+    }
+
+    // =================== INSTANTÁNEAS ===================
+
+    // Sin instantáneas previas (primer arranque con el diario) se toma una de inmediato:
+    // el stock anterior al diario solo queda registrado así
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void onApplicationReady() {
+        if (stockSnapshotRepository.findLatestTakenAt().isEmpty()) {
+            takeSnapshot();
+        }
+    }
+
+    @Scheduled(cron = "${app.inventory.snapshot-cron:0 0 3 * * *}")
+    @Transactional
+    public void scheduledSnapshot() {
+        takeSnapshot();
+        compactSnapshots();
+    }
+
+    @Transactional
+    public int takeSnapshot() {
+        long start = System.currentTimeMillis();
+        int rows = stockMovementRepository.takeSnapshot();
+        log.info("Instantánea de inventario: {} productos en {} ms", rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    // Las fechas dentro de un mes compactado se resuelven desde su primera instantánea: el
+    // diario se conserva completo, solo se leen más movimientos
+    @Transactional
+    public int compactSnapshots() {
+        if (snapshotRetentionDays <= 0) {
+            return 0;
+        }
+        int deleted = stockMovementRepository.compactSnapshots(LocalDateTime.now().minusDays(snapshotRetentionDays));
+        if (deleted > 0) {
+            log.info("Instantáneas de inventario compactadas: {} filas eliminadas", deleted);
+        }
+        return deleted;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<LocalDateTime> getLatestSnapshotTime() {
+        return stockSnapshotRepository.findLatestTakenAt();
+    }
+
+    // =================== CONSULTAS ===================
+
+    @Transactional(readOnly = true)
+    public CursorPageDto<StockMovementDto> getProductHistory(Long productId, String cursor, Integer size) {
+        int limit = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        // Se pide una fila extra para saber si existe una página siguiente
+        PageRequest fetchLimit = PageRequest.of(0, limit + 1);
+        List<StockMovementDto> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = stockMovementRepository.findHistory(productId, fetchLimit);
+        } else {
+            CursorUtil.Cursor decoded = CursorUtil.decode(cursor);
+            rows = stockMovementRepository.findHistoryBefore(productId, decoded.sortKeyAsDateTime(), decoded.id(), fetchLimit);
+        }
+
+        boolean hasMore = rows.size() > limit;
+        List<StockMovementDto> content = hasMore ? new ArrayList<>(rows.subList(0, limit)) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            StockMovementDto last = content.get(content.size() - 1);
+            nextCursor = CursorUtil.encode(last.getCreatedAt(), last.getId());
+        }
+        return new CursorPageDto<>(content, nextCursor, content.size(), hasMore);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Integer> getStockAt(Long productId, LocalDateTime at) {
+        validateDate(at);
+        return stockMovementRepository.findStockAt(productId, at);
+    }
+
+    @Transactional(readOnly = true)
+    public List<StockLevelDto> getInventoryAt(LocalDateTime at) {
+        validateDate(at);
+        return stockMovementRepository.findInventoryAt(at);
+    }
+
+    private void validateDate(LocalDateTime at) {
+        if (at == null) {
+            throw new IllegalArgumentException("La fecha es requerida");
+        }
+        if (at.isAfter(LocalDateTime.now())) {
+            throw new IllegalArgumentException("La fecha no puede ser futura");
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.tienda.ropa.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Escribe listados grandes directamente en la respuesta, fila por fila, sin armar la lista
+// completa en memoria. Formatos: arreglo JSON o NDJSON (un objeto por línea).
+@Service
+@Slf4j
+public class JsonStreamService {
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    // En NDJSON se vacía el buffer cada tantas filas para que el cliente las vaya mostrando
+    private static final int NDJSON_FLUSH_EVERY = 100;
+
+    private final ObjectWriter rowWriter;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public JsonStreamService(ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.objectMapper = objectMapper;
+        // Sin flush por cada objeto: el buffer de salida decide cuándo escribir
+        this.rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public static boolean wantsNdjson(String accept) {
+        return accept != null && accept.toLowerCase().contains(APPLICATION_NDJSON.toString());
+    }
+
+    // El Stream se abre y se consume dentro de una transacción de solo lectura en el hilo
+    // que escribe la respuesta (el Stream de JPA necesita la conexión abierta mientras se lee)
+    public <T> ResponseEntity<StreamingResponseBody> stream(Supplier<Stream<T>> source, boolean ndjson) {
+        StreamingResponseBody body = out -> readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<T> rows = source.get()) {
+                if (ndjson) {
+                    writeNdjson(rows.iterator(), out);
+                } else {
+                    writeArray(rows.iterator(), out);
+                }
+            } catch (IOException e) {
+                log.warn("Transmisión interrumpida: {}", e.getMessage());
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(ndjson ? APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    private <T> void writeArray(Iterator<T> rows, OutputStream out) throws IOException {
+        JsonGenerator generator = newGenerator(out);
+        generator.writeStartArray();
+        while (rows.hasNext()) {
+            rowWriter.writeValue(generator, rows.next());
+        }
+        generator.writeEndArray();
+        generator.flush();
+    }
+
+    private <T> void writeNdjson(Iterator<T> rows, OutputStream out) throws IOException {
+        JsonGenerator generator = newGenerator(out);
+        generator.setRootValueSeparator(null);
+        int written = 0;
+        while (rows.hasNext()) {
+            rowWriter.writeValue(generator, rows.next());
+            generator.writeRaw('\n');
+            if (++written % NDJSON_FLUSH_EVERY == 0) {
+                generator.flush();
+            }
+        }
+        generator.flush();
+    }
+
+    // El generador no cierra la salida: de eso se encarga el contenedor
+    private JsonGenerator newGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+}
@@ -1,6 +1,7 @@
 package com.tienda.ropa.service;
 
 import com.tienda.ropa.util.JwtUtil;
+import com.tienda.ropa.util.VerifiedToken;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -21,6 +22,17 @@ public class JwtService {
         return token;
     }
 
+    public String generateToken(UserDetails userDetails, Long userId) {
+        String token = jwtUtil.generateToken(userDetails, userId);
+        log.debug("Token generado para usuario: {}", userDetails.getUsername());
+        return token;
+    }
+
+    // Verificación única del token (firma y expiración), con cache de tokens verificados
+    public VerifiedToken verify(String token) {
+        return jwtUtil.verify(token);
+    }
+
     public String extractUsername(String token) {
         return jwtUtil.getUsernameFromToken(token);
     }
@@ -30,8 +42,8 @@ public class JwtService {
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        boolean isValid = username.equals(userDetails.getUsername()) && !isTokenExpired(token);
+        final VerifiedToken verified = verify(token);
+        boolean isValid = verified.username().equals(userDetails.getUsername()) && !verified.isExpired();
         
         if (!isValid) {
             log.warn("Token inválido para usuario: {}", userDetails.getUsername());
@@ -52,8 +64,8 @@ public class JwtService {
 
     public Boolean isTokenValidForUser(String token, String username) {
         try {
-            String tokenUsername = extractUsername(token);
-            return tokenUsername.equals(username) && !isTokenExpired(token);
+            VerifiedToken verified = verify(token);
+            return verified.username().equals(username) && !verified.isExpired();
         } catch (Exception e) {
             log.error("Error validando token para usuario {}: {}", username, e.getMessage());
             return false;
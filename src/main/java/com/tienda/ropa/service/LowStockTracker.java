@@ -0,0 +1,318 @@
+package com.tienda.ropa.service;
+
+import com.tienda.ropa.event.CatalogChangedEvent;
+import com.tienda.ropa.event.LowStockEvent;
+import com.tienda.ropa.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Stock de los productos activos ordenado por nivel, para responder "productos con stock
+// menor o igual a N" sin recorrer la tabla. Se carga al arrancar y se actualiza producto a
+// producto tras cada escritura de stock o de producto. Cada cambio se informa también a
+// CatalogStatisticsService, que mantiene los contadores de /stats.
+// Carga y actualizaciones corren en un hilo propio: la transacción que escribe no espera por
+// ellas, y los productos que cambian mientras el hilo trabaja se releen juntos en un lote.
+// El stock releído se pasa también a CategoryBitmapIndex, que con los eventos STOCK solo
+// aplica el valor del evento y podría recibirlos desordenados.
+@Service
+@Slf4j
+public class LowStockTracker {
+
+    private static final Comparator<StockLevel> BY_STOCK = Comparator
+            .comparingInt(StockLevel::stock)
+            .thenComparingLong(StockLevel::productId);
+    // Ids por consulta al releer un lote
+    private static final int REFRESH_BATCH_SIZE = 500;
+
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogStatisticsService catalogStatisticsService;
+    private final CategoryBitmapIndex categoryBitmapIndex;
+    private final TransactionTemplate readOnlyTransaction;
+
+    // Umbral de los eventos LowStockEvent; las consultas aceptan cualquier N
+    @Value("${app.inventory.low-stock-threshold:5}")
+    private int threshold;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Serializa lectura en base + aplicación: dos actualizaciones del mismo producto no se
+    // aplican fuera de orden. Las consultas no esperan por la base, solo por el lock de escritura.
+    private final ReentrantLock updateLock = new ReentrantLock();
+    // Solo productos activos
+    private final NavigableSet<StockLevel> levels = new TreeSet<>(BY_STOCK);
+    // Todos los productos, activos o no
+    private final Map<Long, ProductLevel> productsById = new HashMap<>();
+    private volatile boolean ready = false;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "low-stock-tracker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean reloadPending = new AtomicBoolean(false);
+    private final AtomicBoolean reconcilePending = new AtomicBoolean(false);
+    private final Set<Long> pendingIds = ConcurrentHashMap.newKeySet();
+
+    public LowStockTracker(ProductRepository productRepository,
+                           ApplicationEventPublisher eventPublisher,
+                           CatalogStatisticsService catalogStatisticsService,
+                           CategoryBitmapIndex categoryBitmapIndex,
+                           PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.catalogStatisticsService = catalogStatisticsService;
+        this.categoryBitmapIndex = categoryBitmapIndex;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        requestReload();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.type() != CatalogChangedEvent.Type.PRODUCT && event.type() != CatalogChangedEvent.Type.STOCK) {
+            return;
+        }
+        if (event.entityId() == null) {
+            requestReload();
+        } else {
+            requestRefresh(event.entityId());
+        }
+    }
+
+    public void requestReload() {
+        reloadPending.set(true);
+        scheduleDrain();
+    }
+
+    // Conciliación de los contadores de productos de /stats. Corre en el hilo del seguimiento,
+    // igual que las actualizaciones: una escritura no se cuenta dos veces por llegar a la vez
+    // desde la base y desde los pendientes. Los contadores se comprueban contra el estado
+    // propio y la recarga completa los vuelve a alinear con la base.
+    @Scheduled(cron = "${app.stats.reconcile-cron:0 */15 * * * *}")
+    public void requestReconcile() {
+        reconcilePending.set(true);
+        requestReload();
+    }
+
+    public void requestRefresh(Long productId) {
+        pendingIds.add(productId);
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    // Los ids se retiran de pendientes antes de leer la base: un cambio confirmado después
+    // vuelve a encolarse y se relee en la siguiente pasada
+    private void drain() {
+        drainScheduled.set(false);
+        try {
+            if (reloadPending.getAndSet(false)) {
+                boolean verifyCounters = reconcilePending.getAndSet(false);
+                pendingIds.clear();
+                reload(verifyCounters);
+                return;
+            }
+            List<Long> ids = new ArrayList<>(pendingIds);
+            pendingIds.removeAll(ids);
+            for (int from = 0; from < ids.size(); from += REFRESH_BATCH_SIZE) {
+                refresh(ids.subList(from, Math.min(from + REFRESH_BATCH_SIZE, ids.size())));
+            }
+        } catch (Exception e) {
+            log.error("Error actualizando el seguimiento de stock bajo: {}", e.getMessage());
+        }
+    }
+
+    // Ids con stock <= maxStock, de menor a mayor stock (a igual stock, por id)
+    public List<Long> findIdsAtOrBelow(int maxStock) {
+        lock.readLock().lock();
+        try {
+            List<Long> ids = new ArrayList<>();
+            for (StockLevel level : levels.headSet(new StockLevel(maxStock, Long.MAX_VALUE), true)) {
+                ids.add(level.productId());
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long countAtOrBelow(int maxStock) {
+        lock.readLock().lock();
+        try {
+            return levels.headSet(new StockLevel(maxStock, Long.MAX_VALUE), true).size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Recarga completa. Si ya estaba cargado (escritura masiva) se comparan los niveles para
+    // publicar cruces; en la carga inicial no.
+    private void reload(boolean verifyCounters) {
+        long start = System.currentTimeMillis();
+        boolean publishCrossings = ready;
+        List<LowStockEvent> crossings = new ArrayList<>();
+        int loaded;
+        updateLock.lock();
+        try {
+            List<Object[]> rows = readOnlyTransaction.execute(status -> productRepository.findStockLevels());
+            loaded = rows.size();
+            lock.writeLock().lock();
+            try {
+                if (verifyCounters && ready) {
+                    catalogStatisticsService.verifyProducts(totals());
+                }
+                Map<Long, ProductLevel> previous = publishCrossings ? new HashMap<>(productsById) : Map.of();
+                levels.clear();
+                productsById.clear();
+                for (Object[] row : rows) {
+                    Long productId = (Long) row[0];
+                    ProductLevel level = new ProductLevel((Integer) row[1], Boolean.TRUE.equals(row[2]));
+                    put(productId, level);
+                    if (publishCrossings) {
+                        addCrossing(crossings, productId, previous.get(productId), level);
+                    }
+                }
+                catalogStatisticsService.resetProducts(totals());
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            updateLock.unlock();
+        }
+        log.info("Seguimiento de stock bajo cargado: {} productos en {} ms",
+                loaded, System.currentTimeMillis() - start);
+        crossings.forEach(eventPublisher::publishEvent);
+    }
+
+    // Un id que ya no está en la base se retira (producto eliminado)
+    private void refresh(List<Long> productIds) {
+        List<LowStockEvent> crossings = new ArrayList<>();
+        updateLock.lock();
+        try {
+            Map<Long, ProductLevel> currentById = new HashMap<>();
+            List<Object[]> rows = readOnlyTransaction.execute(status -> productRepository.findStockLevelsByIdIn(productIds));
+            for (Object[] row : rows) {
+                currentById.put((Long) row[0], new ProductLevel((Integer) row[1], Boolean.TRUE.equals(row[2])));
+            }
+            lock.writeLock().lock();
+            try {
+                for (Long productId : productIds) {
+                    ProductLevel current = currentById.get(productId);
+                    ProductLevel previous = remove(productId);
+                    if (current != null) {
+                        put(productId, current);
+                    }
+                    catalogStatisticsService.applyProductChange(previous, current);
+                    addCrossing(crossings, productId, previous, current);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            currentById.forEach((productId, level) -> categoryBitmapIndex.updateInStock(productId, level.stock() > 0));
+        } finally {
+            updateLock.unlock();
+        }
+        crossings.forEach(eventPublisher::publishEvent);
+    }
+
+    // Con el lock de escritura tomado
+    private ProductTotals totals() {
+        long active = 0;
+        long totalStock = 0;
+        long lowStock = 0;
+        for (ProductLevel level : productsById.values()) {
+            if (level.active()) {
+                active++;
+                totalStock += level.stock();
+                lowStock += level.stock() <= threshold ? 1 : 0;
+            }
+        }
+        return new ProductTotals(productsById.size(), active, totalStock, lowStock);
+    }
+
+    private void put(Long productId, ProductLevel level) {
+        productsById.put(productId, level);
+        if (level.active()) {
+            levels.add(new StockLevel(level.stock(), productId));
+        }
+    }
+
+    private ProductLevel remove(Long productId) {
+        ProductLevel previous = productsById.remove(productId);
+        if (previous != null && previous.active()) {
+            levels.remove(new StockLevel(previous.stock(), productId));
+        }
+        return previous;
+    }
+
+    // Solo cuentan los productos activos: eliminar o desactivar un producto no genera evento
+    private void addCrossing(List<LowStockEvent> crossings, Long productId, ProductLevel previous, ProductLevel current) {
+        if (current == null || !current.active()) {
+            return;
+        }
+        Integer previousStock = previous != null && previous.active() ? previous.stock() : null;
+        boolean wasLow = previousStock != null && previousStock <= threshold;
+        boolean isLow = current.stock() <= threshold;
+        if (isLow != wasLow) {
+            crossings.add(new LowStockEvent(productId, previousStock, current.stock(), threshold, isLow));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Estado de un producto según la última lectura
+    public record ProductLevel(int stock, boolean active) {
+    }
+
+    // Totales de productos para los contadores de /stats
+    public record ProductTotals(long total, long active, long stock, long lowStock) {
+    }
+
+    private record StockLevel(int stock, long productId) {
+    }
+}
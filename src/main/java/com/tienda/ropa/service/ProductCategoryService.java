@@ -1,5 +1,11 @@
 package com.tienda.ropa.service;
 
+import com.tienda.ropa.config.CacheConfig;
+import com.tienda.ropa.dto.BulkCategoryAssignmentDto;
+import com.tienda.ropa.dto.BulkCategoryAssignmentResultDto;
+import com.tienda.ropa.dto.ProductDto;
+import com.tienda.ropa.dto.UsageRankingDto;
+import com.tienda.ropa.event.CatalogChangedEvent;
 import com.tienda.ropa.model.Category;
 import com.tienda.ropa.model.Product;
 import com.tienda.ropa.model.ProductCategory;
@@ -8,12 +14,21 @@ import com.tienda.ropa.repository.ProductCategoryRepository;
 import com.tienda.ropa.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -23,15 +38,37 @@ public class ProductCategoryService {
     private final ProductCategoryRepository productCategoryRepository;
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
+    private final EntityCacheService entityCacheService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheManager cacheManager;
+    private final CategoryUsageStats categoryUsageStats;
+
+    @Value("${app.product-categories.bulk-max-ids:10000}")
+    private int bulkMaxIds;
+
+    @Value("${app.product-categories.ranking-default-size:10}")
+    private int defaultRankingSize;
+
+    @Value("${app.product-categories.ranking-max-size:100}")
+    private int maxRankingSize;
 
     @Transactional
     public ProductCategory addCategoryToProduct(Long productId, Long categoryId, Boolean isPrimary) {
-        Product product = productRepository.findById(productId)
+        Product product = entityCacheService.findProduct(productId)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
         
-        Category category = categoryRepository.findById(categoryId)
+        Category category = entityCacheService.findCategory(categoryId)
                 .orElseThrow(() -> new RuntimeException("Categoría no encontrada"));
 
+        return addCategoryToProduct(product, category, isPrimary);
+    }
+
+    // Variante para quien ya tiene las entidades resueltas (p. ej. al crear un producto)
+    @Transactional
+    public ProductCategory addCategoryToProduct(Product product, Category category, Boolean isPrimary) {
+        Long productId = product.getId();
+        Long categoryId = category.getId();
+
         // Verificar si ya existe la relación
         if (productCategoryRepository.existsByProductIdAndCategoryId(productId, categoryId)) {
             throw new RuntimeException("El producto ya está asociado a esta categoría");
@@ -48,6 +85,8 @@ public class ProductCategoryService {
 
         ProductCategory productCategory = new ProductCategory(product, category, isPrimary);
         ProductCategory saved = productCategoryRepository.save(productCategory);
+        adjustProductCounts(List.of(categoryId), 1);
+        publishRelationChanged(productId);
         
         log.info("Categoría '{}' agregada al producto '{}' como {}", 
                 category.getName(), product.getName(), isPrimary ? "primaria" : "secundaria");
@@ -61,25 +100,97 @@ public class ProductCategoryService {
             throw new RuntimeException("No existe asociación entre el producto y la categoría");
         }
         
-        productCategoryRepository.deleteByProductIdAndCategoryId(productId, categoryId);
+        int deleted = productCategoryRepository.deleteByProductIdAndCategoryId(productId, categoryId);
+        adjustProductCounts(List.of(categoryId), -deleted);
+        publishRelationChanged(productId);
         log.info("Relación eliminada entre producto {} y categoría {}", productId, categoryId);
     }
 
+    // Aplica solo la diferencia entre las categorías actuales y las pedidas: un DELETE para
+    // las que sobran, un INSERT ... ON CONFLICT DO NOTHING para las que faltan y un UPDATE
+    // del indicador de primaria
     @Transactional
     public void updateProductCategories(Long productId, Set<Long> categoryIds, Long primaryCategoryId) {
-        Product product = productRepository.findById(productId)
+        // Bloquea el producto: dos actualizaciones simultáneas no calculan la diferencia sobre el mismo estado
+        Product product = productRepository.findByIdForUpdate(productId)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
 
-        // Eliminar todas las relaciones existentes
-        productCategoryRepository.deleteByProductId(productId);
+        Set<Long> desired = new HashSet<>(categoryIds);
+        if (!desired.isEmpty() && categoryRepository.findExistingIds(desired).size() != desired.size()) {
+            throw new RuntimeException("Categoría no encontrada");
+        }
 
-        // Agregar nuevas relaciones
-        for (Long categoryId : categoryIds) {
-            Boolean isPrimary = categoryId.equals(primaryCategoryId);
-            addCategoryToProduct(productId, categoryId, isPrimary);
+        Set<Long> current = new HashSet<>(productCategoryRepository.findCategoryIdsByProductId(productId));
+        Set<Long> toRemove = new HashSet<>(current);
+        toRemove.removeAll(desired);
+        Set<Long> toAdd = new HashSet<>(desired);
+        toAdd.removeAll(current);
+
+        if (!toRemove.isEmpty()) {
+            productCategoryRepository.deleteByProductIdAndCategoryIdIn(productId, toRemove);
+            adjustProductCounts(toRemove, -1);
+        }
+        if (!toAdd.isEmpty()) {
+            List<Long> inserted = productCategoryRepository.insertMissingRelations(productId, toAdd, primaryCategoryId);
+            adjustProductCounts(inserted, 1);
+        }
+        productCategoryRepository.updatePrimaryFlags(productId, primaryCategoryId, LocalDateTime.now());
+
+        publishRelationChanged(productId);
+        log.info("Categorías actualizadas para el producto {}: {} agregadas, {} eliminadas",
+                product.getName(), toAdd.size(), toRemove.size());
+    }
+
+    // =================== ASIGNACIÓN MASIVA ===================
+    // Una sola sentencia por operación; la cache de la categoría (su contador) y las de
+    // Hibernate se desalojan una vez, tras el commit
+
+    @Transactional
+    @CacheEvict(value = CacheConfig.CATEGORIES_CACHE, key = "#categoryId")
+    public BulkCategoryAssignmentResultDto assignCategoryToProducts(Long categoryId, BulkCategoryAssignmentDto request) {
+        long start = System.currentTimeMillis();
+        validateBulkRequest(categoryId, request);
+        BulkCategoryAssignmentResultDto result = productRepository.assignCategoryBulk(
+                categoryId, request.getProductIds(), request.getFilter());
+        return finishBulk(result, start, "asignada a");
+    }
+
+    @Transactional
+    @CacheEvict(value = CacheConfig.CATEGORIES_CACHE, key = "#categoryId")
+    public BulkCategoryAssignmentResultDto removeCategoryFromProducts(Long categoryId, BulkCategoryAssignmentDto request) {
+        long start = System.currentTimeMillis();
+        validateBulkRequest(categoryId, request);
+        BulkCategoryAssignmentResultDto result = productRepository.removeCategoryBulk(
+                categoryId, request.getProductIds(), request.getFilter());
+        return finishBulk(result, start, "quitada de");
+    }
+
+    private void validateBulkRequest(Long categoryId, BulkCategoryAssignmentDto request) {
+        if (request == null || (request.getProductIds() == null) == (request.getFilter() == null)) {
+            throw new IllegalArgumentException("Debe indicar la lista de productos o un filtro, no ambos");
+        }
+        if (request.getProductIds() != null) {
+            if (request.getProductIds().isEmpty()) {
+                throw new IllegalArgumentException("La lista de productos está vacía");
+            }
+            if (request.getProductIds().size() > bulkMaxIds) {
+                throw new IllegalArgumentException("La lista de productos no puede superar " + bulkMaxIds + " ids");
+            }
         }
+        if (!categoryRepository.existsById(categoryId)) {
+            throw new RuntimeException("Categoría no encontrada");
+        }
+    }
 
-        log.info("Categorías actualizadas para el producto: {}", product.getName());
+    private BulkCategoryAssignmentResultDto finishBulk(BulkCategoryAssignmentResultDto result, long start, String action) {
+        result.setDurationMs(System.currentTimeMillis() - start);
+        if (result.getAffected() > 0) {
+            // Sin id: cambio masivo escrito por JDBC (ver SecondLevelCacheService)
+            eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.PRODUCT_CATEGORY, null));
+        }
+        log.info("Categoría {} {} {} productos ({} seleccionados) en {} ms", result.getCategoryId(), action,
+                result.getAffected(), result.getMatched(), result.getDurationMs());
+        return result;
     }
 
     @Transactional(readOnly = true)
@@ -90,12 +201,11 @@ public class ProductCategoryService {
                 .collect(Collectors.toList());
     }
 
+    // Productos asociados a la categoría (principal o secundaria). Debe consumirse dentro
+    // de la transacción que lo abre (ver JsonStreamService)
     @Transactional(readOnly = true)
-    public List<Product> getProductsByCategory(Long categoryId) {
-        return productCategoryRepository.findByCategoryId(categoryId)
-                .stream()
-                .map(ProductCategory::getProduct)
-                .collect(Collectors.toList());
+    public Stream<ProductDto> streamProductsByCategory(Long categoryId) {
+        return productRepository.streamDtosByLinkedCategory(categoryId);
     }
 
     @Transactional(readOnly = true)
@@ -113,9 +223,10 @@ public class ProductCategoryService {
                 .collect(Collectors.toList());
     }
 
+    // Lee el contador product_count, no cuenta las relaciones
     @Transactional(readOnly = true)
     public Long getProductCountByCategory(Long categoryId) {
-        return productCategoryRepository.countProductsByCategoryId(categoryId);
+        return categoryRepository.findProductCountById(categoryId).orElse(0L);
     }
 
     @Transactional
@@ -135,31 +246,74 @@ public class ProductCategoryService {
         // Establecer nueva categoría primaria
         productCategory.setIsPrimary(true);
         productCategoryRepository.save(productCategory);
+        publishRelationChanged(productId);
         
         log.info("Categoría {} establecida como primaria para producto {}", categoryId, productId);
     }
 
-    @Transactional(readOnly = true)
-    public List<Object[]> getProductsWithMostCategories() {
-        return productCategoryRepository.findProductsWithMostCategories();
+    // Rankings calculados en memoria (CategoryUsageStats), con nombres
+    public List<UsageRankingDto> getProductsWithMostCategories(Integer limit) {
+        return categoryUsageStats.topProducts(resolveRankingLimit(limit));
     }
 
-    @Transactional(readOnly = true)
-    public List<Object[]> getMostUsedCategories() {
-        return productCategoryRepository.findMostUsedCategories();
+    public List<UsageRankingDto> getMostUsedCategories(Integer limit) {
+        return categoryUsageStats.topCategories(resolveRankingLimit(limit));
+    }
+
+    private int resolveRankingLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultRankingSize;
+        }
+        return Math.min(limit, maxRankingSize);
     }
 
     @Transactional
     public void cleanupCategoryRelations(Long categoryId) {
         // Limpiar todas las relaciones cuando se elimina una categoría
         productCategoryRepository.deleteByCategoryId(categoryId);
+        categoryRepository.resetProductCount(categoryId);
+        evictCategories(List.of(categoryId));
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.CATEGORY, categoryId));
         log.info("Relaciones de categoría {} eliminadas", categoryId);
     }
 
     @Transactional
     public void cleanupProductRelations(Long productId) {
         // Limpiar todas las relaciones cuando se elimina un producto
-        productCategoryRepository.deleteByProductId(productId);
+        deleteProductRelations(productId);
+        publishRelationChanged(productId);
         log.info("Relaciones de producto {} eliminadas", productId);
     }
+
+    private void deleteProductRelations(Long productId) {
+        List<Long> categoryIds = productCategoryRepository.findCategoryIdsByProductId(productId);
+        if (categoryIds.isEmpty()) {
+            return;
+        }
+        productCategoryRepository.deleteByProductId(productId);
+        adjustProductCounts(categoryIds, -1);
+    }
+
+    // Mismo contexto transaccional que el cambio de relaciones: el contador se confirma o
+    // se revierte junto con ellas
+    private void adjustProductCounts(Collection<Long> categoryIds, long delta) {
+        if (categoryIds.isEmpty() || delta == 0) {
+            return;
+        }
+        categoryRepository.adjustProductCount(categoryIds, delta);
+        evictCategories(categoryIds);
+    }
+
+    // Las categorías en cache llevan su contador; la cache es transaccional y desaloja tras el commit
+    private void evictCategories(Collection<Long> categoryIds) {
+        Cache categoriesCache = cacheManager.getCache(CacheConfig.CATEGORIES_CACHE);
+        if (categoriesCache != null) {
+            categoryIds.forEach(categoriesCache::evict);
+        }
+    }
+
+    // Los cambios en las relaciones N:M alteran los conteos de productos por categoría
+    private void publishRelationChanged(Long productId) {
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.PRODUCT_CATEGORY, productId));
+    }
 }
@@ -0,0 +1,420 @@
+package com.tienda.ropa.service;
+
+import com.tienda.ropa.config.CacheConfig;
+import com.tienda.ropa.dto.ProductDto;
+import com.tienda.ropa.dto.ProductImportResultDto;
+import com.tienda.ropa.event.CatalogChangedEvent;
+import com.tienda.ropa.repository.CategoryRepository;
+import com.tienda.ropa.repository.ProductRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Importación masiva de productos desde CSV o XLSX. El archivo se lee fila por fila
+// (sin cargarlo completo), cada fila se valida con las restricciones de ProductDto y las
+// filas válidas se insertan por bloques, una transacción por bloque.
+@Service
+@Slf4j
+public class ProductImportService {
+
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String FORMAT_CSV = "CSV";
+    private static final String FORMAT_XLSX = "XLSX";
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+
+    @Value("${app.import.chunk-size:500}")
+    private int chunkSize;
+
+    public ProductImportService(ProductRepository productRepository,
+                                CategoryRepository categoryRepository,
+                                Validator validator,
+                                ApplicationEventPublisher eventPublisher,
+                                PlatformTransactionManager transactionManager,
+                                CacheManager cacheManager) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cacheManager = cacheManager;
+    }
+
+    public ProductImportResultDto importProducts(MultipartFile file) {
+        String format = detectFormat(file);
+        long start = System.currentTimeMillis();
+
+        ProductImportResultDto result = new ProductImportResultDto();
+        result.setFileName(file.getOriginalFilename());
+        result.setFormat(format);
+
+        ImportBatch batch = new ImportBatch(result, new HashSet<>(categoryRepository.findAllIds()));
+        try {
+            if (FORMAT_CSV.equals(format)) {
+                readCsv(file, batch);
+            } else {
+                readXlsx(file, batch);
+            }
+        } finally {
+            // Lo que quedó pendiente se escribe aunque la lectura se haya interrumpido
+            batch.flush();
+            if (result.getImported() > 0) {
+                // Las categorías en cache llevan su contador de productos, que la importación
+                // incrementa. Se desalojan aquí y no con @CacheEvict, que no se aplica si la
+                // lectura falla después de confirmar algunos bloques.
+                Cache categories = cacheManager.getCache(CacheConfig.CATEGORIES_CACHE);
+                if (categories != null) {
+                    categories.clear();
+                }
+                // Un solo evento para toda la importación: caches, versión, instantánea e índice
+                eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.PRODUCT, null));
+            }
+        }
+
+        long duration = Math.max(1, System.currentTimeMillis() - start);
+        result.setDurationMs(duration);
+        result.setRowsPerSecond(Math.round(result.getTotalRows() * 1000.0 / duration * 10) / 10.0);
+        log.info("Importación de {} ({}): {} filas, {} importadas, {} con error en {} ms",
+                result.getFileName(), format, result.getTotalRows(), result.getImported(),
+                result.getFailed(), duration);
+        return result;
+    }
+
+    private String detectFormat(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new RuntimeException("El archivo está vacío");
+        }
+        String name = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase(Locale.ROOT) : "";
+        String contentType = file.getContentType() != null ? file.getContentType() : "";
+        if (name.endsWith(".csv") || contentType.equals("text/csv")) {
+            return FORMAT_CSV;
+        }
+        if (name.endsWith(".xlsx") || contentType.equals("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")) {
+            return FORMAT_XLSX;
+        }
+        throw new RuntimeException("Formato no soportado: se acepta CSV o XLSX");
+    }
+
+    // =================== LECTURA ===================
+
+    private void readCsv(MultipartFile file, ImportBatch batch) {
+        CSVFormat csvFormat = CSVFormat.DEFAULT.builder()
+                .setHeader()
+                .setSkipHeaderRecord(true)
+                .setIgnoreEmptyLines(true)
+                .setTrim(true)
+                .build();
+        try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8);
+             CSVParser parser = csvFormat.parse(reader)) {
+            Map<Integer, String> columns = new HashMap<>();
+            List<String> headers = parser.getHeaderNames();
+            for (int i = 0; i < headers.size(); i++) {
+                columns.put(i, normalizeHeader(headers.get(i)));
+            }
+            Iterator<CSVRecord> records = parser.iterator();
+            while (records.hasNext()) {
+                CSVRecord record = records.next();
+                Map<String, String> values = new HashMap<>();
+                for (int i = 0; i < record.size(); i++) {
+                    String column = columns.get(i);
+                    if (column != null) {
+                        values.put(column, record.get(i));
+                    }
+                }
+                // La cabecera ocupa la línea 1
+                batch.accept(record.getRecordNumber() + 1, values);
+            }
+        } catch (java.io.IOException | java.io.UncheckedIOException e) {
+            throw new RuntimeException("No se pudo leer el archivo CSV: " + e.getMessage());
+        }
+    }
+
+    // Lectura por eventos (SAX) de la primera hoja: no se construye el libro en memoria
+    private void readXlsx(MultipartFile file, ImportBatch batch) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile("import-productos-", ".xlsx");
+            file.transferTo(tempFile);
+            try (OPCPackage pkg = OPCPackage.open(tempFile.toFile(), PackageAccess.READ)) {
+                XSSFReader xssfReader = new XSSFReader(pkg);
+                ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+                Iterator<InputStream> sheets = xssfReader.getSheetsData();
+                if (!sheets.hasNext()) {
+                    throw new RuntimeException("El archivo no contiene hojas");
+                }
+                try (InputStream sheet = sheets.next()) {
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(
+                            xssfReader.getStylesTable(), null, strings, new SheetRowHandler(batch),
+                            new DataFormatter(), false));
+                    parser.parse(new InputSource(sheet));
+                }
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("No se pudo leer el archivo XLSX: " + e.getMessage());
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (java.io.IOException e) {
+                    log.warn("No se pudo eliminar el archivo temporal {}", tempFile);
+                }
+            }
+        }
+    }
+
+    // Acepta "categoryId", "category_id", "Category Id"...
+    private static String normalizeHeader(String header) {
+        return header == null ? "" : header.replaceAll("[\\s_\\-]", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static class SheetRowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final ImportBatch batch;
+        private final Map<Integer, String> columns = new HashMap<>();
+        private Map<String, String> values;
+        private boolean headerRow;
+
+        SheetRowHandler(ImportBatch batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            headerRow = columns.isEmpty();
+            values = new HashMap<>();
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = new CellReference(cellReference).getCol();
+            String value = formattedValue != null ? formattedValue.trim() : "";
+            if (headerRow) {
+                columns.put(column, normalizeHeader(value));
+            } else if (columns.containsKey(column)) {
+                values.put(columns.get(column), value);
+            }
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (!headerRow && values.values().stream().anyMatch(value -> !value.isEmpty())) {
+                // rowNum empieza en 0; se informa el número de fila que ve el usuario en la planilla
+                batch.accept(rowNum + 1L, values);
+            }
+        }
+    }
+
+    // =================== VALIDACIÓN Y ESCRITURA ===================
+
+    private class ImportBatch {
+
+        private final ProductImportResultDto result;
+        private final Set<Long> categoryIds;
+        private final List<ProductDto> pending = new ArrayList<>();
+        private final List<Long> pendingRows = new ArrayList<>();
+
+        ImportBatch(ProductImportResultDto result, Set<Long> categoryIds) {
+            this.result = result;
+            this.categoryIds = categoryIds;
+        }
+
+        void accept(long row, Map<String, String> values) {
+            result.setTotalRows(result.getTotalRows() + 1);
+            List<ProductImportResultDto.RowError> rowErrors = new ArrayList<>();
+            ProductDto product = toProduct(row, values, rowErrors);
+
+            if (rowErrors.isEmpty()) {
+                for (ConstraintViolation<ProductDto> violation : validator.validate(product)) {
+                    rowErrors.add(new ProductImportResultDto.RowError(
+                            row, violation.getPropertyPath().toString(), violation.getMessage()));
+                }
+            }
+            if (rowErrors.isEmpty() && !categoryIds.contains(product.getCategoryId())) {
+                rowErrors.add(new ProductImportResultDto.RowError(row, "categoryId", "Categoría no encontrada"));
+            }
+
+            if (!rowErrors.isEmpty()) {
+                result.setFailed(result.getFailed() + 1);
+                rowErrors.forEach(this::report);
+                return;
+            }
+
+            pending.add(product);
+            pendingRows.add(row);
+            if (pending.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                Integer inserted = transactionTemplate.execute(status ->
+                        productRepository.insertProductsWithPrimaryCategory(pending));
+                result.setImported(result.getImported() + (inserted != null ? inserted : 0));
+            } catch (Exception e) {
+                // Falla el bloque completo: se informa cada fila y se sigue con el siguiente
+                log.error("Error al insertar bloque de {} productos: {}", pending.size(), e.getMessage());
+                result.setFailed(result.getFailed() + pending.size());
+                for (Long row : pendingRows) {
+                    report(new ProductImportResultDto.RowError(row, null, "Error al guardar el bloque: " + e.getMessage()));
+                }
+            }
+            pending.clear();
+            pendingRows.clear();
+        }
+
+        private ProductDto toProduct(long row, Map<String, String> values, List<ProductImportResultDto.RowError> errors) {
+            ProductDto product = new ProductDto();
+            product.setName(emptyToNull(values.get("name")));
+            product.setDescription(emptyToNull(values.get("description")));
+            product.setImageUrl(emptyToNull(values.get("imageurl")));
+            product.setPrice(parseDecimal(row, "price", values.get("price"), errors));
+            product.setStock(parseInteger(row, "stock", values.get("stock"), errors));
+            product.setCategoryId(parseLong(row, "categoryId", values.get("categoryid"), errors));
+            product.setActive(true);
+            return product;
+        }
+
+        private void report(ProductImportResultDto.RowError error) {
+            if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+                result.getErrors().add(error);
+            } else {
+                result.setErrorsTruncated(true);
+            }
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static BigDecimal parseDecimal(long row, String field, String value,
+                                           List<ProductImportResultDto.RowError> errors) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(normalizeNumber(value));
+        } catch (NumberFormatException e) {
+            errors.add(new ProductImportResultDto.RowError(row, field,
+                    e.getMessage() != null ? e.getMessage() + ": " + value : "Número inválido: " + value));
+            return null;
+        }
+    }
+
+    // Acepta formato local y anglosajón: "19,99", "1.234,56", "1,234.56", "1.234.567".
+    // Con ambos separadores el último es el decimal; un separador repetido es de miles.
+    // Una sola coma seguida de tres cifras ("1,234") puede ser 1234 o 1,234 y se rechaza;
+    // un solo punto es siempre decimal.
+    static String normalizeNumber(String value) {
+        String number = value.replace("$", "").replace(" ", "").trim();
+        int lastComma = number.lastIndexOf(',');
+        int lastDot = number.lastIndexOf('.');
+        if (lastComma >= 0 && lastDot >= 0) {
+            char decimal = lastComma > lastDot ? ',' : '.';
+            char grouping = decimal == ',' ? '.' : ',';
+            String integerPart = number.substring(0, Math.max(lastComma, lastDot));
+            return ungroup(integerPart, grouping) + "." + number.substring(Math.max(lastComma, lastDot) + 1);
+        }
+        if (lastComma >= 0) {
+            if (number.indexOf(',') != lastComma) {
+                return ungroup(number, ',');
+            }
+            if (number.length() - lastComma - 1 == 3) {
+                throw new NumberFormatException("Separador decimal ambiguo, use \"1234\" o \"1234,00\"");
+            }
+            return number.replace(',', '.');
+        }
+        if (lastDot >= 0 && number.indexOf('.') != lastDot) {
+            return ungroup(number, '.');
+        }
+        return number;
+    }
+
+    // Parte entera con separador de miles: grupos de tres cifras ("1.234.567")
+    private static String ungroup(String integerPart, char grouping) {
+        String digits = integerPart.startsWith("-") ? integerPart.substring(1) : integerPart;
+        if (!digits.matches("\\d{1,3}(\\" + grouping + "\\d{3})*")) {
+            throw new NumberFormatException("Separadores de miles y decimales inconsistentes");
+        }
+        return integerPart.replace(String.valueOf(grouping), "");
+    }
+
+    private static Integer parseInteger(long row, String field, String value,
+                                        List<ProductImportResultDto.RowError> errors) {
+        BigDecimal number = parseDecimal(row, field, value, errors);
+        if (number == null) {
+            return null;
+        }
+        try {
+            return number.intValueExact();
+        } catch (ArithmeticException e) {
+            errors.add(new ProductImportResultDto.RowError(row, field, "Debe ser un número entero: " + value));
+            return null;
+        }
+    }
+
+    private static Long parseLong(long row, String field, String value,
+                                  List<ProductImportResultDto.RowError> errors) {
+        BigDecimal number = parseDecimal(row, field, value, errors);
+        if (number == null) {
+            return null;
+        }
+        try {
+            return number.longValueExact();
+        } catch (ArithmeticException e) {
+            errors.add(new ProductImportResultDto.RowError(row, field, "Debe ser un número entero: " + value));
+            return null;
+        }
+    }
+}
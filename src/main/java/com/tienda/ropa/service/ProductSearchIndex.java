@@ -0,0 +1,263 @@
+package com.tienda.ropa.service;
+
+import com.tienda.ropa.event.CatalogChangedEvent;
+import com.tienda.ropa.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Índice invertido en memoria sobre nombre y descripción de los productos activos.
+// Se reconstruye completo al arrancar y se actualiza producto a producto tras cada escritura.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    // Un término exacto pesa más que uno que solo comparte prefijo
+    private static final int EXACT_MATCH_FACTOR = 2;
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "al", "con", "de", "del", "el", "en", "la", "las", "lo", "los",
+            "o", "para", "por", "sin", "su", "un", "una", "y"
+    );
+
+    private final ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Serializa lectura en base + aplicación, igual que LowStockTracker: una reconstrucción no
+    // puede pisar con filas más antiguas una reindexación que leyó después
+    private final ReentrantLock updateLock = new ReentrantLock();
+    // término → (id de producto → peso acumulado)
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    // id de producto → términos indexados, para poder retirarlo
+    private final Map<Long, Set<String>> documentTerms = new HashMap<>();
+    private volatile boolean ready = false;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.type() != CatalogChangedEvent.Type.PRODUCT) {
+            return;
+        }
+        if (event.entityId() == null) {
+            rebuild();
+        } else {
+            reindex(event.entityId());
+        }
+    }
+
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        List<Object[]> rows;
+        updateLock.lock();
+        try {
+            rows = productRepository.findActiveSearchableFields();
+
+            lock.writeLock().lock();
+            try {
+                postings.clear();
+                documentTerms.clear();
+                for (Object[] row : rows) {
+                    addDocument((Long) row[0], (String) row[1], (String) row[2]);
+                }
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            updateLock.unlock();
+        }
+        log.info("Índice de búsqueda reconstruido: {} productos, {} términos en {} ms",
+                rows.size(), postings.size(), System.currentTimeMillis() - start);
+    }
+
+    public void reindex(Long productId) {
+        updateLock.lock();
+        try {
+            List<Object[]> rows = productRepository.findSearchableFieldsById(productId);
+
+            lock.writeLock().lock();
+            try {
+                removeDocument(productId);
+                if (!rows.isEmpty() && Boolean.TRUE.equals(rows.get(0)[3])) {
+                    Object[] row = rows.get(0);
+                    addDocument(productId, (String) row[1], (String) row[2]);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    // Todos los términos de la consulta deben aparecer (AND). Resultado ordenado por
+    // relevancia descendente y, a igual relevancia, por id ascendente.
+    public List<SearchHit> search(String query) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Map<Long, Integer>> matches = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Map<Long, Integer> termMatches = matchTerm(term);
+                if (termMatches.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                matches.add(termMatches);
+            }
+
+            // Se intersecta empezando por el término más selectivo
+            matches.sort(Comparator.comparingInt(Map::size));
+            Map<Long, Integer> scores = new HashMap<>(matches.get(0));
+            for (int i = 1; i < matches.size() && !scores.isEmpty(); i++) {
+                Map<Long, Integer> termMatches = matches.get(i);
+                scores.keySet().retainAll(termMatches.keySet());
+                scores.replaceAll((id, score) -> score + termMatches.get(id));
+            }
+
+            List<SearchHit> hits = new ArrayList<>(scores.size());
+            scores.forEach((id, score) -> hits.add(new SearchHit(id, score)));
+            hits.sort(SearchHit.RANKING);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Posición del primer resultado que va después de last en el orden de search(). last es
+    // el último de la página anterior y puede haber dejado de coincidir o cambiado de puntuación
+    static int positionAfter(List<SearchHit> hits, SearchHit last) {
+        int start = 0;
+        while (start < hits.size() && SearchHit.RANKING.compare(hits.get(start), last) <= 0) {
+            start++;
+        }
+        return start;
+    }
+
+    private Map<Long, Integer> matchTerm(String term) {
+        Map<Long, Integer> result = new HashMap<>();
+        if (term.length() < MIN_PREFIX_LENGTH) {
+            Map<Long, Integer> exact = postings.get(term);
+            if (exact != null) {
+                exact.forEach((id, weight) -> result.merge(id, weight * EXACT_MATCH_FACTOR, Integer::sum));
+            }
+            return result;
+        }
+        // Coincidencia por prefijo: "camis" encuentra "camisa" y "camiseta"
+        for (Map.Entry<String, Map<Long, Integer>> entry
+                : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+            int factor = entry.getKey().equals(term) ? EXACT_MATCH_FACTOR : 1;
+            entry.getValue().forEach((id, weight) -> result.merge(id, weight * factor, Integer::sum));
+        }
+        return result;
+    }
+
+    private void addDocument(Long productId, String name, String description) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String token : tokenize(name)) {
+            weights.merge(token, NAME_WEIGHT, Integer::sum);
+        }
+        for (String token : tokenize(description)) {
+            weights.merge(token, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+        weights.forEach((token, weight) ->
+                postings.computeIfAbsent(token, key -> new HashMap<>()).put(productId, weight));
+        documentTerms.put(productId, weights.keySet());
+    }
+
+    private void removeDocument(Long productId) {
+        Set<String> terms = documentTerms.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Integer> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(productId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    // Las palabras vacías no se indexan: una consulta formada solo por ellas ("de la") no
+    // encontraría nada en el índice, así que el llamador la resuelve en la base
+    static boolean onlyStopwords(String query) {
+        List<String> words = words(query);
+        return !words.isEmpty() && words.stream().allMatch(STOPWORDS::contains);
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String word : words(text)) {
+            if (!STOPWORDS.contains(word)) {
+                tokens.add(word);
+            }
+        }
+        return tokens;
+    }
+
+    // Minúsculas, sin tildes ni diéresis (camión → camion, pingüino → pinguino, año → ano)
+    private static List<String> words(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptyList();
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase();
+        List<String> words = new ArrayList<>();
+        for (String word : NON_ALPHANUMERIC.split(folded)) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    public record SearchHit(Long productId, int score) {
+
+        public static final Comparator<SearchHit> RANKING = Comparator
+                .comparingInt(SearchHit::score).reversed()
+                .thenComparing(SearchHit::productId);
+    }
+}
@@ -1,18 +1,36 @@
 package com.tienda.ropa.service;
 
+import com.tienda.ropa.config.CacheConfig;
+import com.tienda.ropa.dto.CursorPageDto;
 import com.tienda.ropa.dto.ProductDto;
+import com.tienda.ropa.dto.ProductFilterDto;
+import com.tienda.ropa.dto.ProductFilterResultDto;
+import com.tienda.ropa.event.CatalogChangedEvent;
 import com.tienda.ropa.model.Category;
 import com.tienda.ropa.model.Product;
-import com.tienda.ropa.repository.CategoryRepository;
+import com.tienda.ropa.model.StockMovement;
 import com.tienda.ropa.repository.ProductRepository;
+import com.tienda.ropa.util.CursorUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -20,52 +38,106 @@ import java.util.Optional;
 public class ProductService {
 
     private final ProductRepository productRepository;
-    private final CategoryRepository categoryRepository;
     private final ProductCategoryService productCategoryService;
+    private final EntityCacheService entityCacheService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InventoryService inventoryService;
+    private final LowStockTracker lowStockTracker;
+    private final CategoryBitmapIndex categoryBitmapIndex;
 
+    private static final Set<String> FILTER_SORTS = Set.of(
+            ProductFilterDto.SORT_ID, ProductFilterDto.SORT_PRICE_ASC,
+            ProductFilterDto.SORT_PRICE_DESC, ProductFilterDto.SORT_NEWEST);
+
+    // Ids por consulta al cargar productos por id (la lista IN no crece con el resultado)
+    private static final int IN_LIST_CHUNK_SIZE = 500;
+
+    @Value("${app.pagination.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-size:100}")
+    private int maxPageSize;
+
+    @Value("${app.inventory.low-stock-max-ids:1000}")
+    private int lowStockMaxIds;
+
+    // Los listados se proyectan directamente a ProductDto, sin hidratar entidades
     @Transactional(readOnly = true)
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    public List<ProductDto> getAllProducts() {
+        return productRepository.findAllDtos();
     }
 
+    // Debe consumirse dentro de la transacción que lo abre (ver JsonStreamService)
     @Transactional(readOnly = true)
-    public List<Product> getAllActiveProducts() {
-        return productRepository.findAllActiveProducts();
+    public Stream<ProductDto> streamAllProducts() {
+        return productRepository.streamAllDtos();
     }
 
     @Transactional(readOnly = true)
+    public Long getTotalProducts() {
+        return productRepository.count();
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductDto> getAllActiveProducts() {
+        return productRepository.findAllActiveProducts();
+    }
+
+    // Lectura con cache: la entidad devuelta es de solo lectura
     public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+        return entityCacheService.findProduct(id);
     }
 
     @Transactional(readOnly = true)
-    public List<Product> getProductsByCategory(Long categoryId) {
+    public List<ProductDto> getProductsByCategory(Long categoryId) {
         return productRepository.findByCategoryIdAndActiveTrue(categoryId);
     }
 
     @Transactional(readOnly = true)
-    public List<Product> searchProductsByName(String name) {
-        return productRepository.findByNameContainingIgnoreCaseAndActiveTrue(name);
+    public List<ProductDto> searchProductsByName(String name) {
+        // Mientras el índice se construye, o si la consulta solo tiene palabras vacías, se
+        // consulta la base de datos
+        if (!productSearchIndex.isReady() || ProductSearchIndex.onlyStopwords(name)) {
+            return productRepository.findByNameContainingIgnoreCaseAndActiveTrue(name);
+        }
+        List<Long> ids = productSearchIndex.search(name).stream()
+                .map(ProductSearchIndex.SearchHit::productId)
+                .collect(Collectors.toList());
+        return findActiveInOrder(ids);
     }
 
     @Transactional(readOnly = true)
-    public List<Product> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
+    public List<ProductDto> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
         return productRepository.findByPriceBetweenAndActiveTrue(minPrice, maxPrice);
     }
 
     @Transactional(readOnly = true)
-    public List<Product> getProductsInStock() {
+    public List<ProductDto> getProductsInStock() {
         return productRepository.findByStockGreaterThanZeroAndActiveTrue();
     }
 
+    // Ordenados de menor a mayor stock. Mientras el seguimiento en memoria no está cargado
+    // (arranque), o si coinciden demasiados productos para una lista IN, se consulta la base.
     @Transactional(readOnly = true)
-    public List<Product> getLowStockProducts(Integer minStock) {
-        return productRepository.findByLowStock(minStock);
+    public List<ProductDto> getLowStockProducts(Integer minStock) {
+        if (!lowStockTracker.isReady() || lowStockTracker.countAtOrBelow(minStock) > lowStockMaxIds) {
+            return productRepository.findByLowStock(minStock);
+        }
+        return findActiveInOrder(lowStockTracker.findIdsAtOrBelow(minStock));
+    }
+
+    @Transactional(readOnly = true)
+    public Long countLowStockProducts(Integer minStock) {
+        if (!lowStockTracker.isReady()) {
+            return productRepository.countLowStock(minStock);
+        }
+        return lowStockTracker.countAtOrBelow(minStock);
     }
 
     @Transactional
     public Product createProduct(ProductDto productDto) {
-        Category category = categoryRepository.findById(productDto.getCategoryId())
+        Category category = entityCacheService.findCategory(productDto.getCategoryId())
                 .orElseThrow(() -> new RuntimeException("Categoría no encontrada"));
 
         Product product = new Product();
@@ -80,20 +152,26 @@ public class ProductService {
         Product savedProduct = productRepository.save(product);
         
         // Crear relación N:M con la categoría principal
-        productCategoryService.addCategoryToProduct(savedProduct.getId(), category.getId(), true);
+        productCategoryService.addCategoryToProduct(savedProduct, category, true);
+        inventoryService.recordMovement(savedProduct.getId(), 0, savedProduct.getStock(), StockMovement.Reason.CREATE);
+        publishProductChanged(savedProduct.getId());
 
         log.info("Producto creado: {} en categoría: {}", product.getName(), category.getName());
         return savedProduct;
     }
 
     @Transactional
+    @CacheEvict(value = CacheConfig.PRODUCTS_CACHE, key = "#id")
     public Product updateProduct(Long id, ProductDto productDto) {
-        Product product = productRepository.findById(id)
+        // Se carga desde la base de datos: la entidad se modifica y debe estar gestionada.
+        // La fila queda bloqueada para que el stock anterior del diario sea el reemplazado.
+        Product product = productRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
 
-        Category category = categoryRepository.findById(productDto.getCategoryId())
+        Category category = entityCacheService.findCategory(productDto.getCategoryId())
                 .orElseThrow(() -> new RuntimeException("Categoría no encontrada"));
 
+        Integer oldStock = product.getStock();
         product.setName(productDto.getName());
         product.setDescription(productDto.getDescription());
         product.setPrice(productDto.getPrice());
@@ -106,44 +184,55 @@ public class ProductService {
         }
 
         Product updatedProduct = productRepository.save(product);
+        inventoryService.recordMovement(id, oldStock, product.getStock(), StockMovement.Reason.UPDATE);
         
         // Actualizar relación principal en ProductCategory
         productCategoryService.setPrimaryCategory(id, category.getId());
+        publishProductChanged(id);
 
         log.info("Producto actualizado: {} en categoría: {}", product.getName(), category.getName());
         return updatedProduct;
     }
 
     @Transactional
+    @CacheEvict(value = CacheConfig.PRODUCTS_CACHE, key = "#id")
     public void deleteProduct(Long id) {
-        Product product = productRepository.findById(id)
+        // Bloqueada como en updateStock: los movimientos de un producto se escriben en orden
+        Product product = productRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
 
         // Limpiar relaciones N:M antes de eliminar
         productCategoryService.cleanupProductRelations(id);
         
         productRepository.delete(product);
+        inventoryService.recordMovement(id, product.getStock(), 0, StockMovement.Reason.DELETE);
+        publishProductChanged(id);
         log.info("Producto eliminado: {}", product.getName());
     }
 
     @Transactional
+    @CacheEvict(value = CacheConfig.PRODUCTS_CACHE, key = "#id")
     public void toggleProductStatus(Long id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
 
         product.setActive(!product.getActive());
         productRepository.save(product);
+        publishProductChanged(id);
         log.info("Producto {} {}", product.getName(), product.getActive() ? "activado" : "desactivado");
     }
 
     @Transactional
+    @CacheEvict(value = CacheConfig.PRODUCTS_CACHE, key = "#id")
     public Product updateStock(Long id, Integer newStock) {
-        Product product = productRepository.findById(id)
+        Product product = productRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
 
         Integer oldStock = product.getStock();
         product.setStock(newStock);
         Product updatedProduct = productRepository.save(product);
+        inventoryService.recordMovement(id, oldStock, newStock, StockMovement.Reason.SET);
+        eventPublisher.publishEvent(CatalogChangedEvent.stockChanged(id, newStock));
         
         log.info("Stock actualizado para producto {}: {} → {}", product.getName(), oldStock, newStock);
         return updatedProduct;
@@ -160,7 +249,7 @@ public class ProductService {
     }
 
     @Transactional(readOnly = true)
-    public List<Product> getProductsOrderByPrice(String order) {
+    public List<ProductDto> getProductsOrderByPrice(String order) {
         if ("desc".equalsIgnoreCase(order)) {
             return productRepository.findAllActiveProductsOrderByPriceDesc();
         } else {
@@ -169,10 +258,218 @@ public class ProductService {
     }
 
     @Transactional(readOnly = true)
-    public List<Product> getLatestProducts() {
+    public List<ProductDto> getLatestProducts() {
         return productRepository.findAllActiveProductsOrderByCreatedAtDesc();
     }
 
+    // =================== PAGINACIÓN POR CURSOR ===================
+
+    @Transactional(readOnly = true)
+    public CursorPageDto<ProductDto> getActiveProductsPage(String cursor, Integer size) {
+        int limit = resolvePageSize(size);
+        List<ProductDto> rows = productRepository.findActivePage(afterId(cursor), fetchLimit(limit));
+        return toPage(rows, limit, p -> CursorUtil.encode(p.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDto<ProductDto> getAllProductsPage(String cursor, Integer size) {
+        int limit = resolvePageSize(size);
+        List<ProductDto> rows = productRepository.findAllPage(afterId(cursor), fetchLimit(limit));
+        return toPage(rows, limit, p -> CursorUtil.encode(p.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDto<ProductDto> getProductsByCategoryPage(Long categoryId, String cursor, Integer size) {
+        int limit = resolvePageSize(size);
+        List<ProductDto> rows = productRepository.findActiveByCategoryPage(categoryId, afterId(cursor), fetchLimit(limit));
+        return toPage(rows, limit, p -> CursorUtil.encode(p.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDto<ProductDto> searchProductsByNamePage(String name, String cursor, Integer size) {
+        int limit = resolvePageSize(size);
+        if (!productSearchIndex.isReady() || ProductSearchIndex.onlyStopwords(name)) {
+            List<ProductDto> rows = productRepository.searchActiveByNamePage(name, afterId(cursor), fetchLimit(limit));
+            return toPage(rows, limit, p -> CursorUtil.encode(p.getId()));
+        }
+
+        // Orden por relevancia: el cursor guarda la puntuación y el id del último resultado
+        List<ProductSearchIndex.SearchHit> hits = productSearchIndex.search(name);
+        int start = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            CursorUtil.Cursor decoded = CursorUtil.decode(cursor);
+            start = ProductSearchIndex.positionAfter(hits, new ProductSearchIndex.SearchHit(decoded.id(), decoded.sortKeyAsInt()));
+        }
+        List<ProductSearchIndex.SearchHit> window = hits.subList(start, Math.min(hits.size(), start + limit + 1));
+        Map<Long, Integer> scores = window.stream()
+                .collect(Collectors.toMap(ProductSearchIndex.SearchHit::productId, ProductSearchIndex.SearchHit::score));
+        List<ProductDto> rows = findActiveInOrder(window.stream()
+                .map(ProductSearchIndex.SearchHit::productId)
+                .collect(Collectors.toList()));
+        return toPage(rows, limit, p -> CursorUtil.encode(scores.get(p.getId()), p.getId()));
+    }
+
+    // Combinación de categorías resuelta en el índice en memoria; solo se consulta la base
+    // para traer los productos de la página, en una sola consulta por ids. Mientras el índice
+    // no está disponible (carga inicial o ids fuera de su rango) los ids se buscan en SQL.
+    @Transactional(readOnly = true)
+    public CursorPageDto<ProductDto> getProductsByCategories(Set<Long> allOf, Set<Long> anyOf, Boolean inStock,
+                                                             String cursor, Integer size) {
+        if (allOf.isEmpty() && anyOf.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar al menos una categoría");
+        }
+        int limit = resolvePageSize(size);
+        boolean inStockOnly = Boolean.TRUE.equals(inStock);
+        List<Long> ids = categoryBitmapIndex.isReady()
+                ? categoryBitmapIndex.find(allOf, anyOf, inStockOnly, afterId(cursor), limit + 1)
+                : productRepository.findActiveIdsByCategories(allOf, anyOf, inStockOnly, afterId(cursor), limit + 1);
+        return toPage(findActiveInOrder(ids), limit, p -> CursorUtil.encode(p.getId()));
+    }
+
+    // Carga los productos por id conservando el orden recibido, en bloques de IN_LIST_CHUNK_SIZE
+    private List<ProductDto> findActiveInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, ProductDto> byId = new HashMap<>(ids.size());
+        for (int from = 0; from < ids.size(); from += IN_LIST_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, ids.size()));
+            productRepository.findActiveDtosByIdIn(chunk).forEach(product -> byId.put(product.getId(), product));
+        }
+        List<ProductDto> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProductDto product = byId.get(id);
+            if (product != null) {
+                ordered.add(product);
+            }
+        }
+        return ordered;
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDto<ProductDto> getProductsByPriceRangePage(BigDecimal minPrice, BigDecimal maxPrice,
+                                                                 String cursor, Integer size) {
+        int limit = resolvePageSize(size);
+        List<ProductDto> rows = productRepository.findActiveByPriceRangePage(minPrice, maxPrice, afterId(cursor), fetchLimit(limit));
+        return toPage(rows, limit, p -> CursorUtil.encode(p.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDto<ProductDto> getProductsInStockPage(String cursor, Integer size) {
+        int limit = resolvePageSize(size);
+        List<ProductDto> rows = productRepository.findActiveInStockPage(afterId(cursor), fetchLimit(limit));
+        return toPage(rows, limit, p -> CursorUtil.encode(p.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDto<ProductDto> getLowStockProductsPage(Integer minStock, String cursor, Integer size) {
+        int limit = resolvePageSize(size);
+        List<ProductDto> rows = productRepository.findLowStockPage(minStock, afterId(cursor), fetchLimit(limit));
+        return toPage(rows, limit, p -> CursorUtil.encode(p.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDto<ProductDto> getLatestProductsPage(String cursor, Integer size) {
+        int limit = resolvePageSize(size);
+        List<ProductDto> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = productRepository.findLatestFirstPage(fetchLimit(limit));
+        } else {
+            CursorUtil.Cursor decoded = CursorUtil.decode(cursor);
+            rows = productRepository.findLatestPage(decoded.sortKeyAsDateTime(), decoded.id(), fetchLimit(limit));
+        }
+        return toPage(rows, limit, p -> CursorUtil.encode(p.getCreatedAt(), p.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDto<ProductDto> getProductsOrderByPricePage(String order, String cursor, Integer size) {
+        int limit = resolvePageSize(size);
+        boolean descending = "desc".equalsIgnoreCase(order);
+        List<ProductDto> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = descending
+                    ? productRepository.findByPriceDescFirstPage(fetchLimit(limit))
+                    : productRepository.findByPriceAscFirstPage(fetchLimit(limit));
+        } else {
+            CursorUtil.Cursor decoded = CursorUtil.decode(cursor);
+            rows = descending
+                    ? productRepository.findByPriceDescPage(decoded.sortKeyAsDecimal(), decoded.id(), fetchLimit(limit))
+                    : productRepository.findByPriceAscPage(decoded.sortKeyAsDecimal(), decoded.id(), fetchLimit(limit));
+        }
+        return toPage(rows, limit, p -> CursorUtil.encode(p.getPrice().toPlainString(), p.getId()));
+    }
+
+    // =================== FILTRO COMBINADO ===================
+
+    @Transactional(readOnly = true)
+    public ProductFilterResultDto filterProducts(ProductFilterDto filter, String cursor, Integer size) {
+        if (filter.getSort() == null || filter.getSort().isBlank()) {
+            filter.setSort(ProductFilterDto.SORT_ID);
+        }
+        if (!FILTER_SORTS.contains(filter.getSort())) {
+            throw new IllegalArgumentException("Orden no válido: " + filter.getSort());
+        }
+        if (filter.getMinPrice() != null && filter.getMaxPrice() != null
+                && filter.getMinPrice().compareTo(filter.getMaxPrice()) > 0) {
+            throw new IllegalArgumentException("El precio mínimo no puede ser mayor al máximo");
+        }
+
+        int limit = resolvePageSize(size);
+        CursorUtil.Cursor after = (cursor == null || cursor.isBlank()) ? null : CursorUtil.decode(cursor);
+        ProductFilterResultDto result = productRepository.filterProducts(filter, after, limit + 1);
+
+        // Se pidió una fila extra para saber si existe una página siguiente
+        List<ProductDto> rows = result.getContent();
+        boolean hasMore = rows.size() > limit;
+        List<ProductDto> content = hasMore ? new ArrayList<>(rows.subList(0, limit)) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            ProductDto last = content.get(content.size() - 1);
+            nextCursor = switch (filter.getSort()) {
+                case ProductFilterDto.SORT_PRICE_ASC, ProductFilterDto.SORT_PRICE_DESC ->
+                        CursorUtil.encode(last.getPrice().toPlainString(), last.getId());
+                case ProductFilterDto.SORT_NEWEST -> CursorUtil.encode(last.getCreatedAt(), last.getId());
+                default -> CursorUtil.encode(last.getId());
+            };
+        }
+        result.setContent(content);
+        result.setNextCursor(nextCursor);
+        result.setSize(content.size());
+        result.setHasMore(hasMore);
+        return result;
+    }
+
+    // Los oyentes se ejecutan tras el commit (versión, instantánea del catálogo)
+    private void publishProductChanged(Long productId) {
+        eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.PRODUCT, productId));
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(size, maxPageSize);
+    }
+
+    // Se pide una fila extra para saber si existe una página siguiente
+    private Pageable fetchLimit(int limit) {
+        return PageRequest.of(0, limit + 1);
+    }
+
+    private Long afterId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        return CursorUtil.decode(cursor).id();
+    }
+
+    private CursorPageDto<ProductDto> toPage(List<ProductDto> rows, int limit, Function<ProductDto, String> cursorOf) {
+        boolean hasMore = rows.size() > limit;
+        List<ProductDto> content = hasMore ? new ArrayList<>(rows.subList(0, limit)) : rows;
+        String nextCursor = hasMore ? cursorOf.apply(content.get(content.size() - 1)) : null;
+        return new CursorPageDto<>(content, nextCursor, content.size(), hasMore);
+    }
+
     // Convertir Product a ProductDto
     public ProductDto convertToDto(Product product) {
         ProductDto dto = new ProductDto();
@@ -185,6 +482,7 @@ public class ProductService {
         dto.setActive(product.getActive());
         dto.setCategoryId(product.getCategory().getId());
         dto.setCategoryName(product.getCategory().getName());
+        dto.setCreatedAt(product.getCreatedAt());
         return dto;
     }
 }
\ No newline at end of file
@@ -0,0 +1,271 @@
+package com.tienda.ropa.service;
+
+import com.tienda.ropa.config.CacheConfig;
+import com.tienda.ropa.dto.ProductImportResultDto;
+import com.tienda.ropa.dto.StockReservationDto;
+import com.tienda.ropa.dto.StockUpdateDto;
+import com.tienda.ropa.dto.StockUpdateResultDto;
+import com.tienda.ropa.event.CatalogChangedEvent;
+import com.tienda.ropa.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Operaciones de stock sin leer-modificar-guardar: reservas y devoluciones con UPDATE
+// condicional, y la actualización masiva (sincronización con el depósito), que aplica los
+// pares por bloques con un UPDATE por bloque, cada bloque en su propia transacción.
+@Service
+@Slf4j
+public class ProductStockService {
+
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheManager cacheManager;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.stock.bulk-chunk-size:1000}")
+    private int chunkSize;
+
+    public ProductStockService(ProductRepository productRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               CacheManager cacheManager,
+                               PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.cacheManager = cacheManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // =================== RESERVAS ===================
+
+    @Transactional
+    @CacheEvict(value = CacheConfig.PRODUCTS_CACHE, key = "#productId")
+    public Integer reserve(Long productId, Integer quantity) {
+        validateQuantity(quantity);
+        Integer stock = productRepository.reserveStock(productId, quantity)
+                .orElseThrow(() -> productRepository.existsById(productId)
+                        ? new IllegalStateException("Stock insuficiente para el producto " + productId)
+                        : new RuntimeException("Producto no encontrado"));
+        publishStockChanged(productId, stock);
+        log.debug("Reservadas {} unidades del producto {} (stock restante {})", quantity, productId, stock);
+        return stock;
+    }
+
+    @Transactional
+    @CacheEvict(value = CacheConfig.PRODUCTS_CACHE, key = "#productId")
+    public Integer release(Long productId, Integer quantity) {
+        validateQuantity(quantity);
+        Integer stock = productRepository.releaseStock(productId, quantity)
+                .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
+        publishStockChanged(productId, stock);
+        log.debug("Devueltas {} unidades del producto {} (stock {})", quantity, productId, stock);
+        return stock;
+    }
+
+    // Todo o nada: si alguna línea no alcanza, la excepción revierte las demás
+    @Transactional
+    public Map<Long, Integer> reserveAll(List<StockReservationDto> lines) {
+        if (lines == null || lines.isEmpty()) {
+            throw new IllegalArgumentException("El carrito está vacío");
+        }
+        // Las líneas repetidas de un mismo producto se suman
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (StockReservationDto line : lines) {
+            if (line == null || line.getProductId() == null) {
+                throw new IllegalArgumentException("El id del producto es requerido");
+            }
+            validateQuantity(line.getQuantity());
+            quantities.merge(line.getProductId(), line.getQuantity(), Math::addExact);
+        }
+
+        Map<Long, Integer> reserved = productRepository.reserveStockLines(quantities);
+        if (reserved.size() != quantities.size()) {
+            List<Long> rejected = quantities.keySet().stream()
+                    .filter(productId -> !reserved.containsKey(productId))
+                    .toList();
+            throw new IllegalStateException("Stock insuficiente o producto inexistente: " + rejected);
+        }
+
+        // La cache es transaccional: los desalojos se aplican después del commit. Los eventos
+        // llevan el stock resultante, así que sus oyentes no vuelven a consultar la base.
+        Cache productsCache = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+        reserved.forEach((productId, stock) -> {
+            if (productsCache != null) {
+                productsCache.evict(productId);
+            }
+            publishStockChanged(productId, stock);
+        });
+        return reserved;
+    }
+
+    private void validateQuantity(Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("La cantidad debe ser mayor a 0");
+        }
+    }
+
+    private void publishStockChanged(Long productId, Integer stock) {
+        eventPublisher.publishEvent(CatalogChangedEvent.stockChanged(productId, stock));
+    }
+
+    // =================== ACTUALIZACIÓN MASIVA ===================
+
+    // Las entidades cacheadas por id quedan desactualizadas: se vacía la cache completa
+    @CacheEvict(value = CacheConfig.PRODUCTS_CACHE, allEntries = true)
+    public StockUpdateResultDto updateStock(List<StockUpdateDto> updates) {
+        StockBatch batch = new StockBatch();
+        try {
+            for (int i = 0; i < updates.size(); i++) {
+                StockUpdateDto update = updates.get(i);
+                batch.accept(i + 1L, update != null ? update.getId() : null, update != null ? update.getStock() : null);
+            }
+        } finally {
+            batch.finish();
+        }
+        return batch.result;
+    }
+
+    // CSV con cabecera "id,stock" (también acepta productId / product_id)
+    @CacheEvict(value = CacheConfig.PRODUCTS_CACHE, allEntries = true)
+    public StockUpdateResultDto updateStockFromCsv(InputStream csv) {
+        CSVFormat csvFormat = CSVFormat.DEFAULT.builder()
+                .setHeader()
+                .setSkipHeaderRecord(true)
+                .setIgnoreEmptyLines(true)
+                .setIgnoreHeaderCase(true)
+                .setTrim(true)
+                .build();
+        StockBatch batch = new StockBatch();
+        try (Reader reader = new InputStreamReader(csv, StandardCharsets.UTF_8);
+             CSVParser parser = csvFormat.parse(reader)) {
+            String idColumn = findColumn(parser.getHeaderNames(), "id", "productid");
+            String stockColumn = findColumn(parser.getHeaderNames(), "stock");
+            for (CSVRecord record : parser) {
+                long row = record.getRecordNumber() + 1;
+                try {
+                    batch.accept(row, parseLong(record, idColumn), parseStock(record, stockColumn));
+                } catch (NumberFormatException e) {
+                    batch.reject(row, "El id y el stock deben ser números enteros");
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new RuntimeException("No se pudo leer el CSV de stock: " + e.getMessage());
+        } finally {
+            batch.finish();
+        }
+        return batch.result;
+    }
+
+    private static String findColumn(List<String> headers, String... candidates) {
+        for (String header : headers) {
+            String normalized = header.replaceAll("[\\s_\\-]", "").toLowerCase(Locale.ROOT);
+            for (String candidate : candidates) {
+                if (normalized.equals(candidate)) {
+                    return header;
+                }
+            }
+        }
+        throw new RuntimeException("El CSV debe tener las columnas id y stock");
+    }
+
+    private static Long parseLong(CSVRecord record, String column) {
+        String value = record.isSet(column) ? record.get(column) : "";
+        return value.isEmpty() ? null : Long.valueOf(value);
+    }
+
+    private static Integer parseStock(CSVRecord record, String column) {
+        String value = record.isSet(column) ? record.get(column) : "";
+        return value.isEmpty() ? null : Integer.valueOf(value);
+    }
+
+    private class StockBatch {
+
+        private final StockUpdateResultDto result = new StockUpdateResultDto();
+        // Dentro de un bloque gana la última aparición de cada id; los bloques se aplican en orden
+        private final Map<Long, Integer> pending = new LinkedHashMap<>();
+        private final long start = System.currentTimeMillis();
+
+        void accept(long row, Long id, Integer stock) {
+            if (id == null) {
+                reject(row, "El id del producto es requerido");
+                return;
+            }
+            if (stock == null || stock < 0) {
+                reject(row, stock == null ? "El stock es requerido" : "El stock no puede ser negativo");
+                return;
+            }
+            result.setReceived(result.getReceived() + 1);
+            pending.put(id, stock);
+            if (pending.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void reject(long row, String message) {
+            result.setReceived(result.getReceived() + 1);
+            result.setRejected(result.getRejected() + 1);
+            if (result.getInvalid().size() < ProductImportService.MAX_REPORTED_ERRORS) {
+                result.getInvalid().add(new ProductImportResultDto.RowError(row, null, message));
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<StockUpdateDto> chunk = new ArrayList<>(pending.size());
+            pending.forEach((id, stock) -> chunk.add(new StockUpdateDto(id, stock)));
+            pending.clear();
+            try {
+                List<Long> updatedIds = transactionTemplate.execute(status -> productRepository.updateStockBulk(chunk));
+                Set<Long> found = new HashSet<>(updatedIds != null ? updatedIds : List.of());
+                result.setUpdated(result.getUpdated() + found.size());
+                for (StockUpdateDto update : chunk) {
+                    if (!found.contains(update.getId())) {
+                        result.getNotFoundIds().add(update.getId());
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Error al actualizar stock de un bloque de {} productos: {}", chunk.size(), e.getMessage());
+                chunk.forEach(update -> result.getFailedIds().add(update.getId()));
+            }
+        }
+
+        void finish() {
+            flush();
+            result.setDurationMs(System.currentTimeMillis() - start);
+            if (result.getUpdated() > 0) {
+                // Un solo evento para toda la carga: versión, instantánea y cache de consultas
+                eventPublisher.publishEvent(new CatalogChangedEvent(CatalogChangedEvent.Type.STOCK, null));
+            }
+            log.info("Stock masivo: {} recibidos, {} actualizados, {} no encontrados, {} inválidos en {} ms",
+                    result.getReceived(), result.getUpdated(), result.getNotFoundIds().size(),
+                    result.getRejected(), result.getDurationMs());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.tienda.ropa.service;
+
+import com.tienda.ropa.model.RefreshToken;
+import com.tienda.ropa.repository.RefreshTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+// Refresh tokens opacos y rotativos: renuevan el token de acceso sin volver a comprobar la
+// contraseña (sin BCrypt). Solo se guarda el hash; cada uso entrega un token nuevo de la
+// misma familia y presentar uno ya usado o revocado revoca la familia entera (reuso: el
+// token pudo haber sido robado).
+// Excepción: durante un margen corto tras la rotación (reintento del cliente tras perder la
+// respuesta, o dos peticiones de renovación a la vez) el token usado devuelve el mismo sucesor
+// que ya se emitió, si este aún no se usó. Como solo se guardan hashes, el sucesor se deriva
+// del token anterior con un HMAC de clave secreta en lugar de generarse al azar.
+@Service
+@Slf4j
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+    private static final String SUCCESSOR_ALGORITHM = "HmacSHA256";
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final Duration ttl;
+    private final Duration reuseGrace;
+    private final SecretKeySpec successorKey;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               @Value("${app.security.refresh-token-ttl:30d}") Duration ttl,
+                               @Value("${app.security.refresh-token-reuse-grace:10s}") Duration reuseGrace,
+                               @Value("${jwt.secret}") String secret) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.ttl = ttl;
+        this.reuseGrace = reuseGrace;
+        // Clave propia para los sucesores, distinta de la de firma de los JWT
+        SecretKeySpec secretKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), SUCCESSOR_ALGORITHM);
+        this.successorKey = new SecretKeySpec(hmac(secretKey, "refresh-token-successor"), SUCCESSOR_ALGORITHM);
+    }
+
+    // Inicio de sesión: abre una familia nueva
+    @Transactional
+    public String issue(Long userId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        return create(encode(bytes), userId, UUID.randomUUID().toString());
+    }
+
+    // Consume el token y devuelve su sucesor. El reuso se registra aunque la petición falle.
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
+    public Rotation rotate(String rawToken) {
+        RefreshToken current = refreshTokenRepository.findByTokenHashForUpdate(hash(rawToken))
+                .orElseThrow(() -> new IllegalArgumentException("Refresh token inválido"));
+        LocalDateTime now = LocalDateTime.now();
+
+        if (current.getRevokedAt() == null && current.getUsedAt() != null
+                && now.isBefore(current.getUsedAt().plus(reuseGrace))) {
+            String successor = successorOf(rawToken);
+            Optional<RefreshToken> issued = refreshTokenRepository.findByTokenHashForUpdate(hash(successor))
+                    .filter(token -> token.getUsedAt() == null && token.getRevokedAt() == null);
+            if (issued.isPresent()) {
+                log.debug("Refresh token reenviado dentro del margen para usuario con ID {}", current.getUserId());
+                return new Rotation(current.getUserId(), successor);
+            }
+        }
+        if (current.getUsedAt() != null || current.getRevokedAt() != null) {
+            int revoked = refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+            log.warn("Reuso de refresh token detectado para usuario con ID {}: {} tokens revocados",
+                    current.getUserId(), revoked);
+            throw new IllegalArgumentException("Refresh token inválido");
+        }
+        if (!current.getExpiresAt().isAfter(now)) {
+            throw new IllegalArgumentException("Refresh token expirado");
+        }
+
+        current.setUsedAt(now);
+        refreshTokenRepository.save(current);
+        String next = create(successorOf(rawToken), current.getUserId(), current.getFamilyId());
+        return new Rotation(current.getUserId(), next);
+    }
+
+    // Cierre de sesión: revoca la familia si el token pertenece al usuario indicado
+    @Transactional
+    public void revoke(String rawToken, Long userId) {
+        refreshTokenRepository.findByTokenHashForUpdate(hash(rawToken))
+                .filter(token -> userId == null || Objects.equals(token.getUserId(), userId))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), LocalDateTime.now()));
+    }
+
+    @Scheduled(cron = "${app.security.refresh-token-purge-cron:0 45 * * * *}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Refresh tokens expirados eliminados: {}", deleted);
+        }
+    }
+
+    private String create(String rawToken, Long userId, String familyId) {
+        LocalDateTime now = LocalDateTime.now();
+        RefreshToken token = new RefreshToken();
+        token.setTokenHash(hash(rawToken));
+        token.setUserId(userId);
+        token.setFamilyId(familyId);
+        token.setCreatedAt(now);
+        token.setExpiresAt(now.plus(ttl));
+        refreshTokenRepository.save(token);
+        return rawToken;
+    }
+
+    // Sin la clave no se puede calcular el sucesor de un token
+    private String successorOf(String rawToken) {
+        return encode(hmac(successorKey, rawToken));
+    }
+
+    private static byte[] hmac(SecretKeySpec key, String data) {
+        try {
+            Mac mac = Mac.getInstance(SUCCESSOR_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 no disponible", e);
+        }
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    // Los tokens son aleatorios de 256 bits: basta un hash rápido, sin sal ni BCrypt
+    private static String hash(String rawToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    // Resultado de una rotación: usuario dueño y refresh token nuevo
+    public record Rotation(Long userId, String refreshToken) {
+    }
+}
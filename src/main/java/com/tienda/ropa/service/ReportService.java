@@ -7,8 +7,8 @@ import com.itextpdf.layout.element.Cell;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
 import com.itextpdf.layout.properties.TextAlignment;
-import com.tienda.ropa.model.Category;
-import com.tienda.ropa.model.Product;
+import com.tienda.ropa.dto.CategoryDto;
+import com.tienda.ropa.dto.ProductDto;
 import com.tienda.ropa.model.User;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -48,7 +48,7 @@ public class ReportService {
                 .setTextAlignment(TextAlignment.RIGHT)
                 .setFontSize(10));
 
-        List<Product> products = productService.getAllProducts();
+        List<ProductDto> products = productService.getAllProducts();
 
         Table table = new Table(new float[]{2, 3, 2, 1, 1, 2});
         table.setWidth(100);
@@ -60,10 +60,10 @@ public class ReportService {
         table.addHeaderCell(new Cell().add(new Paragraph("Stock")));
         table.addHeaderCell(new Cell().add(new Paragraph("Estado")));
 
-        for (Product product : products) {
+        for (ProductDto product : products) {
             table.addCell(new Cell().add(new Paragraph(product.getId().toString())));
             table.addCell(new Cell().add(new Paragraph(product.getName())));
-            table.addCell(new Cell().add(new Paragraph(product.getCategory().getName())));
+            table.addCell(new Cell().add(new Paragraph(product.getCategoryName())));
             table.addCell(new Cell().add(new Paragraph("$" + product.getPrice().toString())));
             table.addCell(new Cell().add(new Paragraph(product.getStock().toString())));
             table.addCell(new Cell().add(new Paragraph(product.getActive() ? "Activo" : "Inactivo")));
@@ -101,15 +101,15 @@ public class ReportService {
             cell.setCellStyle(headerStyle);
         }
 
-        List<Product> products = productService.getAllProducts();
+        List<ProductDto> products = productService.getAllProducts();
         int rowNum = 1;
 
-        for (Product product : products) {
+        for (ProductDto product : products) {
             Row row = sheet.createRow(rowNum++);
             row.createCell(0).setCellValue(product.getId());
             row.createCell(1).setCellValue(product.getName());
             row.createCell(2).setCellValue(product.getDescription() != null ? product.getDescription() : "");
-            row.createCell(3).setCellValue(product.getCategory().getName());
+            row.createCell(3).setCellValue(product.getCategoryName());
             row.createCell(4).setCellValue(product.getPrice().doubleValue());
             row.createCell(5).setCellValue(product.getStock());
             row.createCell(6).setCellValue(product.getActive() ? "Activo" : "Inactivo");
@@ -144,7 +144,7 @@ public class ReportService {
                 .setTextAlignment(TextAlignment.RIGHT)
                 .setFontSize(10));
 
-        List<Category> categories = categoryService.getAllCategories();
+        List<CategoryDto> categories = categoryService.getAllCategories();
 
         Table table = new Table(new float[]{1, 3, 4, 1, 1});
         table.setWidth(100);
@@ -155,11 +155,11 @@ public class ReportService {
         table.addHeaderCell(new Cell().add(new Paragraph("Productos")));
         table.addHeaderCell(new Cell().add(new Paragraph("Estado")));
 
-        for (Category category : categories) {
+        for (CategoryDto category : categories) {
             table.addCell(new Cell().add(new Paragraph(category.getId().toString())));
             table.addCell(new Cell().add(new Paragraph(category.getName())));
             table.addCell(new Cell().add(new Paragraph(category.getDescription() != null ? category.getDescription() : "")));
-            table.addCell(new Cell().add(new Paragraph(categoryService.getProductCountByCategory(category.getId()).toString())));
+            table.addCell(new Cell().add(new Paragraph(category.getProductCount().toString())));
             table.addCell(new Cell().add(new Paragraph(category.getActive() ? "Activa" : "Inactiva")));
         }
 
@@ -168,7 +168,7 @@ public class ReportService {
         document.add(new Paragraph("\nEstadísticas:")
                 .setFontSize(14));
         document.add(new Paragraph("Total de categorías: " + categories.size()));
-        document.add(new Paragraph("Categorías activas: " + categoryService.getAllActiveCategories().size()));
+        document.add(new Paragraph("Categorías activas: " + categoryService.getTotalActiveCategories()));
 
         document.close();
         log.info("Reporte PDF de categorías generado con {} registros", categories.size());
@@ -240,7 +240,7 @@ public class ReportService {
                 .setTextAlignment(TextAlignment.RIGHT)
                 .setFontSize(10));
 
-        List<Product> lowStockProducts = productService.getLowStockProducts(10);
+        List<ProductDto> lowStockProducts = productService.getLowStockProducts(10);
 
         document.add(new Paragraph("Productos con Bajo Stock (menor a 10 unidades)")
                 .setFontSize(14));
@@ -253,9 +253,9 @@ public class ReportService {
         lowStockTable.addHeaderCell(new Cell().add(new Paragraph("Stock")));
         lowStockTable.addHeaderCell(new Cell().add(new Paragraph("Estado")));
 
-        for (Product product : lowStockProducts) {
+        for (ProductDto product : lowStockProducts) {
             lowStockTable.addCell(new Cell().add(new Paragraph(product.getName())));
-            lowStockTable.addCell(new Cell().add(new Paragraph(product.getCategory().getName())));
+            lowStockTable.addCell(new Cell().add(new Paragraph(product.getCategoryName())));
             lowStockTable.addCell(new Cell().add(new Paragraph(product.getStock().toString())));
             lowStockTable.addCell(new Cell().add(new Paragraph(product.getStock() == 0 ? "Sin Stock" : "Bajo Stock")));
         }
@@ -0,0 +1,46 @@
+package com.tienda.ropa.service;
+
+import com.tienda.ropa.event.CatalogChangedEvent;
+import com.tienda.ropa.model.Category;
+import com.tienda.ropa.model.ProductCategory;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Las escrituras masivas hechas por JDBC no pasan por Hibernate, así que la cache de
+// segundo nivel no se entera de ellas. Se publican como cambios sin id (entityId nulo).
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SecondLevelCacheService {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    // Antes que los oyentes que vuelven a leer el catálogo (instantánea, índice de búsqueda)
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (event.entityId() == null) {
+            evictQueryResults();
+            // La importación y las asignaciones masivas también cambian relaciones
+            // y categories.product_count
+            evictEntityRegion(Category.class);
+            evictEntityRegion(ProductCategory.class);
+        }
+    }
+
+    public void evictQueryResults() {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+        log.debug("Cache de consultas de Hibernate desalojada");
+    }
+
+    public void evictEntityRegion(Class<?> entityClass) {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictEntityData(entityClass);
+        log.debug("Región de cache de {} desalojada", entityClass.getSimpleName());
+    }
+}
@@ -0,0 +1,223 @@
+package com.tienda.ropa.service;
+
+import com.tienda.ropa.model.RevokedToken;
+import com.tienda.ropa.model.TokenWatermark;
+import com.tienda.ropa.repository.RefreshTokenRepository;
+import com.tienda.ropa.repository.RevokedTokenRepository;
+import com.tienda.ropa.repository.TokenWatermarkRepository;
+import com.tienda.ropa.util.BloomFilter;
+import com.tienda.ropa.util.VerifiedToken;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Revocación de tokens antes de su expiración, persistida en revoked_tokens y
+// token_watermarks y copiada en memoria para no consultar la base en cada petición:
+//  - por jti (cierre de sesión): filtro de Bloom delante del conjunto exacto, de modo que
+//    casi todos los tokens se descartan sin tocar el mapa;
+//  - por usuario (bloqueo, cambio de contraseña, baja): los tokens emitidos antes de la
+//    marca no son válidos.
+// Las entradas caducan cuando el token habría expirado igualmente. La copia en memoria se
+// sincroniza periódicamente para recoger las revocaciones hechas en otras instancias.
+@Service
+@Slf4j
+public class TokenRevocationService {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final TokenWatermarkRepository tokenWatermarkRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final Duration tokenLifetime;
+    private final long expectedEntries;
+
+    // Serializa escrituras en memoria con la sincronización; las consultas no lo toman
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private volatile Denylist denylist;
+    private final Map<Long, Watermark> watermarks = new ConcurrentHashMap<>();
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  TokenWatermarkRepository tokenWatermarkRepository,
+                                  RefreshTokenRepository refreshTokenRepository,
+                                  @Value("${jwt.expiration}") long expirationMillis,
+                                  @Value("${app.security.revocation-expected-entries:100000}") long expectedEntries) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.tokenWatermarkRepository = tokenWatermarkRepository;
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.tokenLifetime = Duration.ofMillis(expirationMillis);
+        this.expectedEntries = expectedEntries;
+        this.denylist = new Denylist(BloomFilter.create(expectedEntries, FALSE_POSITIVE_RATE), new ConcurrentHashMap<>());
+    }
+
+    // Antes de aceptar peticiones: una revocación no cargada dejaría pasar el token
+    @PostConstruct
+    void init() {
+        sync();
+    }
+
+    // Camino caliente del filtro JWT: sin consultas ni bloqueos
+    public boolean isRevoked(VerifiedToken token) {
+        if (token.userId() != null && token.issuedAt() != null) {
+            Watermark watermark = watermarks.get(token.userId());
+            if (watermark != null && token.issuedAt().isBefore(watermark.notBefore())) {
+                return true;
+            }
+        }
+        if (token.tokenId() == null) {
+            return false;
+        }
+        Denylist current = denylist;
+        return current.filter().mightContain(token.tokenId()) && current.tokens().containsKey(token.tokenId());
+    }
+
+    // Revoca un token concreto hasta su expiración (cierre de sesión)
+    @Transactional
+    public void revoke(VerifiedToken token) {
+        if (token.tokenId() == null) {
+            throw new IllegalArgumentException("El token no tiene identificador (jti) y no puede revocarse individualmente");
+        }
+        revokedTokenRepository.save(new RevokedToken(
+                token.tokenId(), token.userId(), toLocal(token.expiresAt()), LocalDateTime.now()));
+        afterCommit(() -> {
+            updateLock.lock();
+            try {
+                addToken(denylist, token.tokenId(), token.expiresAt());
+            } finally {
+                updateLock.unlock();
+            }
+        });
+        log.info("Token revocado para usuario: {}", token.username());
+    }
+
+    // Invalida todos los tokens emitidos hasta ahora para el usuario, incluidos sus refresh
+    // tokens (que no podrán renovar el acceso). Se compara con la emisión en milisegundos del
+    // token (JwtUtil.CLAIM_ISSUED_AT_MILLIS); la marca pasa al milisegundo siguiente para que
+    // un token del mismo milisegundo que la revocación también quede revocado. Los tokens
+    // antiguos, solo con iat en segundos, quedan revocados durante todo ese segundo.
+    @Transactional
+    public void revokeAllForUser(Long userId) {
+        Instant notBefore = Instant.now().truncatedTo(ChronoUnit.MILLIS).plusMillis(1);
+        Instant expiresAt = notBefore.plus(tokenLifetime);
+        TokenWatermark entity = tokenWatermarkRepository.findById(userId).orElseGet(TokenWatermark::new);
+        entity.setUserId(userId);
+        entity.setNotBefore(toLocal(notBefore));
+        entity.setExpiresAt(toLocal(expiresAt));
+        tokenWatermarkRepository.save(entity);
+        refreshTokenRepository.revokeAllByUserId(userId, LocalDateTime.now());
+        afterCommit(() -> {
+            updateLock.lock();
+            try {
+                watermarks.merge(userId, new Watermark(notBefore, expiresAt), TokenRevocationService::latest);
+            } finally {
+                updateLock.unlock();
+            }
+        });
+        log.info("Tokens revocados para usuario con ID: {}", userId);
+    }
+
+    // Recoge las revocaciones de otras instancias y descarta las entradas expiradas. Las
+    // entradas locales se conservan aunque su fila aún no sea visible (transacción en curso).
+    @Scheduled(cron = "${app.security.revocation-sync-cron:0 * * * * *}")
+    @Transactional(readOnly = true)
+    public void sync() {
+        LocalDateTime now = LocalDateTime.now();
+        Instant nowInstant = Instant.now();
+        List<Object[]> tokenRows = revokedTokenRepository.findActive(now);
+        List<TokenWatermark> watermarkRows = tokenWatermarkRepository.findActive(now);
+
+        updateLock.lock();
+        try {
+            Map<String, Instant> tokens = new HashMap<>();
+            denylist.tokens().forEach((id, expiresAt) -> {
+                if (expiresAt.isAfter(nowInstant)) {
+                    tokens.put(id, expiresAt);
+                }
+            });
+            for (Object[] row : tokenRows) {
+                tokens.put((String) row[0], toInstant((LocalDateTime) row[1]));
+            }
+            Denylist rebuilt = new Denylist(
+                    BloomFilter.create(Math.max(expectedEntries, tokens.size() * 2L), FALSE_POSITIVE_RATE),
+                    new ConcurrentHashMap<>(tokens.size()));
+            tokens.forEach((id, expiresAt) -> addToken(rebuilt, id, expiresAt));
+            denylist = rebuilt;
+
+            watermarks.values().removeIf(watermark -> !watermark.expiresAt().isAfter(nowInstant));
+            for (TokenWatermark row : watermarkRows) {
+                watermarks.merge(row.getUserId(),
+                        new Watermark(toInstant(row.getNotBefore()), toInstant(row.getExpiresAt())),
+                        TokenRevocationService::latest);
+            }
+            log.debug("Revocaciones sincronizadas: {} tokens, {} usuarios", tokens.size(), watermarks.size());
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    // Las filas expiradas ya no rechazan nada: el token habría fallado por expiración
+    @Scheduled(cron = "${app.security.revocation-purge-cron:0 15 * * * *}")
+    @Transactional
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int tokens = revokedTokenRepository.deleteExpired(now);
+        int users = tokenWatermarkRepository.deleteExpired(now);
+        if (tokens > 0 || users > 0) {
+            log.info("Revocaciones expiradas eliminadas: {} tokens, {} usuarios", tokens, users);
+        }
+    }
+
+    // La copia en memoria se actualiza tras el commit: si la transacción del llamador se
+    // revierte no queda una revocación que la base no tiene (sync conserva las entradas locales)
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // Primero el filtro: un token visible en el mapa siempre pasa el filtro
+    private static void addToken(Denylist target, String tokenId, Instant expiresAt) {
+        target.filter().put(tokenId);
+        target.tokens().put(tokenId, expiresAt);
+    }
+
+    private static Watermark latest(Watermark a, Watermark b) {
+        return a.notBefore().isAfter(b.notBefore()) ? a : b;
+    }
+
+    private static LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+
+    private static Instant toInstant(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    private record Denylist(BloomFilter filter, Map<String, Instant> tokens) {
+    }
+
+    private record Watermark(Instant notBefore, Instant expiresAt) {
+    }
+}
@@ -1,5 +1,6 @@
 package com.tienda.ropa.service;
 
+import com.tienda.ropa.event.UserChangedEvent;
 import com.tienda.ropa.model.Role;
 import com.tienda.ropa.model.User;
 import com.tienda.ropa.model.UserProfile;
@@ -8,6 +9,7 @@ import com.tienda.ropa.repository.UserRepository;
 import com.tienda.ropa.dto.UserDto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -22,6 +24,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -31,6 +34,9 @@ public class UserService implements UserDetailsService {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserStatusService userStatusService;
+    private final TokenRevocationService tokenRevocationService;
 
     @Override
     @Transactional(readOnly = true)
@@ -91,6 +97,7 @@ public class UserService implements UserDetailsService {
         user.setUserProfile(userProfile);
 
         User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(UserChangedEvent.Type.CREATED, savedUser.getId(), Set.of(roleName)));
         log.info("Usuario creado: {} con rol: {}", username, roleName);
         
         return savedUser;
@@ -101,6 +108,12 @@ public class UserService implements UserDetailsService {
         return userRepository.findAll();
     }
 
+    // Debe consumirse dentro de la transacción que lo abre (ver JsonStreamService)
+    @Transactional(readOnly = true)
+    public Stream<UserDto> streamAllUsers() {
+        return userRepository.streamAllDtos();
+    }
+
     @Transactional(readOnly = true)
     public Optional<User> getUserById(Long id) {
         return userRepository.findById(id);
@@ -123,10 +136,21 @@ public class UserService implements UserDetailsService {
             user.setEmail(userDto.getEmail());
         }
 
+        boolean wasActive = isActive(user);
         user.setEnabled(userDto.getEnabled());
         user.setLocked(userDto.getLocked());
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userStatusService.evict(id);
+        // Deshabilitar o bloquear la cuenta invalida los tokens ya emitidos
+        if (wasActive && !isActive(saved)) {
+            tokenRevocationService.revokeAllForUser(id);
+        }
+        return saved;
+    }
+
+    private static boolean isActive(User user) {
+        return Boolean.TRUE.equals(user.getEnabled()) && !Boolean.TRUE.equals(user.getLocked());
     }
 
     @Transactional
@@ -140,6 +164,8 @@ public class UserService implements UserDetailsService {
 
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        // Las sesiones abiertas con la contraseña anterior dejan de ser válidas
+        tokenRevocationService.revokeAllForUser(userId);
         log.info("Contraseña cambiada para usuario: {}", user.getUsername());
     }
 
@@ -150,15 +176,24 @@ public class UserService implements UserDetailsService {
 
         user.setLocked(!user.getLocked());
         userRepository.save(user);
+        userStatusService.evict(userId);
+        if (user.getLocked()) {
+            tokenRevocationService.revokeAllForUser(userId);
+        }
         log.info("Usuario {} {}", user.getUsername(), user.getLocked() ? "bloqueado" : "desbloqueado");
     }
 
     @Transactional
     public void deleteUser(Long id) {
-        if (!userRepository.existsById(id)) {
-            throw new RuntimeException("Usuario no encontrado");
-        }
-        userRepository.deleteById(id);
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        Set<Role.RoleName> roleNames = user.getRoles().stream()
+                .map(Role::getName)
+                .collect(Collectors.toSet());
+        userRepository.delete(user);
+        userStatusService.evict(id);
+        tokenRevocationService.revokeAllForUser(id);
+        eventPublisher.publishEvent(new UserChangedEvent(UserChangedEvent.Type.DELETED, id, roleNames));
         log.info("Usuario con ID {} eliminado", id);
     }
 
@@ -171,6 +206,6 @@ public class UserService implements UserDetailsService {
 
     @Transactional(readOnly = true)
     public Long countUsersByRole(Role.RoleName roleName) {
-        return userRepository.countByRole(roleName.name());
+        return userRepository.countByRole(roleName);
     }
 }
@@ -0,0 +1,69 @@
+package com.tienda.ropa.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tienda.ropa.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+
+// Comprobación "la cuenta sigue habilitada y sin bloquear" para la autorización por token.
+// El resultado se guarda por usuario durante app.security.user-status-ttl (0 desactiva la
+// comprobación); UserService lo desaloja al cambiar el estado de una cuenta.
+// El desalojo se aplica tras el commit: si se hiciera antes, una petición concurrente podría
+// volver a cargar el estado anterior y mantenerlo en caché durante todo el TTL.
+@Service
+@Slf4j
+public class UserStatusService {
+
+    private final UserRepository userRepository;
+    private final Duration ttl;
+    private final Cache<Long, Boolean> activeByUserId;
+
+    public UserStatusService(UserRepository userRepository,
+                             @Value("${app.security.user-status-ttl:60s}") Duration ttl,
+                             @Value("${app.security.user-status-max-entries:10000}") long maxEntries) {
+        this.userRepository = userRepository;
+        this.ttl = ttl;
+        this.activeByUserId = Caffeine.newBuilder()
+                .expireAfterWrite(ttl.isZero() ? Duration.ofSeconds(1) : ttl)
+                .maximumSize(maxEntries)
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public boolean isActive(Long userId) {
+        if (ttl.isZero()) {
+            return true;
+        }
+        return activeByUserId.get(userId, this::loadActive);
+    }
+
+    public void evict(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            activeByUserId.invalidate(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                activeByUserId.invalidate(userId);
+            }
+        });
+    }
+
+    private Boolean loadActive(Long userId) {
+        List<Object[]> rows = userRepository.findStatusById(userId);
+        if (rows.isEmpty()) {
+            return false;
+        }
+        Object[] row = rows.get(0);
+        return Boolean.TRUE.equals(row[0]) && !Boolean.TRUE.equals(row[1]);
+    }
+}
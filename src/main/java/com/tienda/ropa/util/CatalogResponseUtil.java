@@ -0,0 +1,85 @@
+package com.tienda.ropa.util;
+
+import com.tienda.ropa.service.CatalogSnapshotService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CatalogResponseUtil {
+
+    public static final String CATALOG_VERSION_HEADER = "X-Catalog-Version";
+    public static final String PRODUCTS_RESOURCE = "products";
+    public static final String CATEGORIES_RESOURCE = "categories";
+
+    // ETag fuerte derivado de la versión del catálogo; la variante comprimida lleva su propio ETag
+    public static String etag(String resource, long version, boolean gzip) {
+        return "\"" + resource + "-" + version + (gzip ? "-gzip" : "") + "\"";
+    }
+
+    // Compara If-None-Match con la versión vigente sin acceder a la base de datos.
+    // Devuelve el ETag coincidente o null si el cliente no tiene la versión actual.
+    public static String matchingEtag(String ifNoneMatch, String resource, long version) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return null;
+        }
+        String identity = etag(resource, version, false);
+        String gzip = etag(resource, version, true);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(identity) || tag.equals(gzip)) {
+                return tag;
+            }
+        }
+        return null;
+    }
+
+    public static ResponseEntity<byte[]> notModifiedResponse(String etag, long version) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .headers(versionHeaders(etag, version))
+                .build();
+    }
+
+    // Respuesta sin instantánea (se arma con la consulta); la versión debe leerse antes de consultar
+    public static <T> ResponseEntity<T> versionedResponse(T body, String resource, long version) {
+        return ResponseEntity.ok()
+                .headers(versionHeaders(etag(resource, version, false), version))
+                .body(body);
+    }
+
+    public static boolean acceptsGzip(String acceptEncoding) {
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    // Devuelve los bytes ya serializados (y comprimidos si el cliente lo acepta) sin volver a procesarlos.
+    // Al llevar Content-Encoding, la compresión del servidor no vuelve a comprimir la respuesta.
+    public static ResponseEntity<byte[]> snapshotResponse(CatalogSnapshotService.Snapshot snapshot,
+                                                          String resource, String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        byte[] body = snapshot.body(gzip);
+
+        HttpHeaders headers = versionHeaders(etag(resource, snapshot.version(), gzip), snapshot.version());
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setContentLength(body.length);
+        if (gzip) {
+            headers.add(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    // no-cache: el cliente puede guardar la respuesta pero debe revalidarla con If-None-Match
+    private static HttpHeaders versionHeaders(String etag, long version) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.setCacheControl(CacheControl.noCache());
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        headers.add(CATALOG_VERSION_HEADER, String.valueOf(version));
+        return headers;
+    }
+}
@@ -0,0 +1,68 @@
+package com.tienda.ropa.util;
+
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+@Component
+public class CursorUtil {
+
+    private static final String SEPARATOR = "|";
+
+    // Codifica la clave de ordenamiento y el id en un cursor opaco (Base64 URL-safe)
+    public static String encode(Object sortKey, Long id) {
+        String raw = (sortKey != null ? sortKey.toString() : "") + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String encode(Long id) {
+        return encode(null, id);
+    }
+
+    public static Cursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = raw.lastIndexOf(SEPARATOR);
+            if (separatorIndex < 0) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            String sortKey = raw.substring(0, separatorIndex);
+            Long id = Long.valueOf(raw.substring(separatorIndex + 1));
+            return new Cursor(sortKey.isEmpty() ? null : sortKey, id);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+
+    public record Cursor(String sortKey, Long id) {
+
+        public BigDecimal sortKeyAsDecimal() {
+            if (sortKey == null) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            return new BigDecimal(sortKey);
+        }
+
+        public int sortKeyAsInt() {
+            if (sortKey == null) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            return Integer.parseInt(sortKey);
+        }
+
+        public LocalDateTime sortKeyAsDateTime() {
+            if (sortKey == null) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            try {
+                return LocalDateTime.parse(sortKey);
+            } catch (java.time.format.DateTimeParseException e) {
+                throw new IllegalArgumentException("Cursor inválido", e);
+            }
+        }
+    }
+}
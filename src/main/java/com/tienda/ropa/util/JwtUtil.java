@@ -1,35 +1,130 @@
 package com.tienda.ropa.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
 @Slf4j
 public class JwtUtil {
 
+    // Claims con los que el filtro autentica sin consultar la base
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_USER_ID = "uid";
+    // Emisión en milisegundos: iat solo tiene segundos y no basta para comparar con la marca de
+    // revocación de un usuario (un login justo después de la revocación no debe quedar revocado)
+    public static final String CLAIM_ISSUED_AT_MILLIS = "iat_ms";
+
     @Value("${jwt.secret}")
     private String secret;
 
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    @Value("${app.security.verified-token-cache-size:10000}")
+    private long verifiedTokenCacheSize;
+
+    // La clave y el parser son inmutables y seguros entre hilos: se construyen una sola vez
+    private SecretKey signingKey;
+    private JwtParser parser;
+    // Hash SHA-256 del token → token verificado, hasta su expiración
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        signingKey = buildSigningKey();
+        parser = Jwts.parser().verifyWith(signingKey).build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedTokenCacheSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), token.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    // Única verificación por petición: firma y expiración se comprueban al parsear; los
+    // tokens ya verificados se sirven desde la cache hasta que expiran
+    public VerifiedToken verify(String token) {
+        String key = hash(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(key);
+        if (cached != null && !cached.isExpired()) {
+            return cached;
+        }
+        VerifiedToken verified = toVerifiedToken(getAllClaimsFromToken(token));
+        verifiedTokens.put(key, verified);
+        return verified;
+    }
+
+    private VerifiedToken toVerifiedToken(Claims claims) {
+        List<String> roles = claims.get(CLAIM_ROLES) instanceof Collection<?> values
+                ? values.stream().map(String::valueOf).toList()
+                : List.of();
+        Long userId = claims.get(CLAIM_USER_ID) instanceof Number number ? number.longValue() : null;
+        Instant issuedAt = claims.get(CLAIM_ISSUED_AT_MILLIS) instanceof Number millis
+                ? Instant.ofEpochMilli(millis.longValue())
+                : claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null;
+        return new VerifiedToken(
+                claims.getId(),
+                claims.getSubject(),
+                userId,
+                roles,
+                issuedAt,
+                claims.getExpiration().toInstant());
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
     public String getUsernameFromToken(String token) {
-        return getClaimFromToken(token, Claims::getSubject);
+        return verify(token).username();
     }
 
     public Date getExpirationDateFromToken(String token) {
-        return getClaimFromToken(token, Claims::getExpiration);
+        return Date.from(verify(token).expiresAt());
     }
 
     public <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
@@ -39,9 +134,7 @@ public class JwtUtil {
 
     private Claims getAllClaimsFromToken(String token) {
         try {
-            return Jwts.parser()
-                    .verifyWith(getSigningKey())  // verifyWith en lugar de setSigningKey
-                    .build()
+            return parser
                     .parseSignedClaims(token)     // parseSignedClaims en lugar de parseClaimsJws
                     .getPayload();                 // getPayload en lugar de getBody
         } catch (Exception e) {
@@ -51,26 +144,40 @@ public class JwtUtil {
     }
 
     private Boolean isTokenExpired(String token) {
-        final Date expirationDate = getExpirationDateFromToken(token);
-        return expirationDate.before(new Date());
+        return verify(token).isExpired();
     }
 
     public String generateToken(UserDetails userDetails) {
+        return generateToken(userDetails, null);
+    }
+
+    // Incluye roles e id de usuario para que cada petición se autorice solo con el token
+    public String generateToken(UserDetails userDetails, Long userId) {
         Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_ROLES, userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .sorted()
+                .toList());
+        if (userId != null) {
+            claims.put(CLAIM_USER_ID, userId);
+        }
         return createToken(claims, userDetails.getUsername());
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
         try {
-            Date now = new Date(System.currentTimeMillis());
-            Date expirationDate = new Date(System.currentTimeMillis() + expiration);
+            long issuedAtMillis = System.currentTimeMillis();
+            Date now = new Date(issuedAtMillis);
+            Date expirationDate = new Date(issuedAtMillis + expiration);
             
             String token = Jwts.builder()
                     .claims(claims)
+                    .claim(CLAIM_ISSUED_AT_MILLIS, issuedAtMillis)
+                    .id(UUID.randomUUID().toString())  // jti: permite revocar este token
                     .subject(subject)
                     .issuedAt(now)
                     .expiration(expirationDate)        // expiration en lugar de setExpiration
-                    .signWith(getSigningKey())          // signWith con SecretKey
+                    .signWith(signingKey)               // signWith con SecretKey
                     .compact();
             
             log.debug("Token generated successfully for user: {}", subject);
@@ -85,8 +192,9 @@ public class JwtUtil {
 
     public Boolean validateToken(String token, UserDetails userDetails) {
         try {
-            final String username = getUsernameFromToken(token);
-            boolean isValid = username.equals(userDetails.getUsername()) && !isTokenExpired(token);
+            final VerifiedToken verified = verify(token);
+            final String username = verified.username();
+            boolean isValid = username.equals(userDetails.getUsername()) && !verified.isExpired();
             
             if (isValid) {
                 log.debug("Token validation successful for user: {}", username);
@@ -101,7 +209,7 @@ public class JwtUtil {
         }
     }
 
-    private SecretKey getSigningKey() {
+    private SecretKey buildSigningKey() {
         try {
             byte[] keyBytes = secret.getBytes();
             
@@ -142,9 +250,15 @@ public class JwtUtil {
 
     public String refreshToken(String token) {
         try {
-            final String username = getUsernameFromToken(token);
+            final Claims current = getAllClaimsFromToken(token);
             Map<String, Object> claims = new HashMap<>();
-            return createToken(claims, username);
+            if (current.get(CLAIM_ROLES) != null) {
+                claims.put(CLAIM_ROLES, current.get(CLAIM_ROLES, List.class));
+            }
+            if (current.get(CLAIM_USER_ID) != null) {
+                claims.put(CLAIM_USER_ID, current.get(CLAIM_USER_ID, Long.class));
+            }
+            return createToken(claims, current.getSubject());
         } catch (Exception e) {
             log.error("Error refreshing token: {}", e.getMessage());
             throw new RuntimeException("Could not refresh JWT token", e);
@@ -154,10 +268,7 @@ public class JwtUtil {
     // Método para validar si un token puede ser parseado (verificación básica)
     public Boolean canTokenBeParsed(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
+            parser.parseSignedClaims(token);
             return true;
         } catch (Exception e) {
             log.debug("Token cannot be parsed: {}", e.getMessage());
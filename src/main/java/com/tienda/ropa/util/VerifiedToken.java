@@ -0,0 +1,23 @@
+package com.tienda.ropa.util;
+
+import java.time.Instant;
+import java.util.List;
+
+// Token ya verificado (firma y expiración) con los claims que usa la aplicación.
+// Inmutable: se comparte entre peticiones desde la cache de JwtUtil. La revocación no se
+// guarda aquí: se comprueba en cada petición (TokenRevocationService).
+public record VerifiedToken(String tokenId, String username, Long userId, List<String> roles, Instant issuedAt, Instant expiresAt) {
+
+    public VerifiedToken {
+        roles = roles != null ? List.copyOf(roles) : List.of();
+    }
+
+    public boolean isExpired() {
+        return !expiresAt.isAfter(Instant.now());
+    }
+
+    // Tokens emitidos antes de incluir roles e id no alcanzan para autorizar sin la base
+    public boolean hasAuthorizationClaims() {
+        return userId != null && !roles.isEmpty();
+    }
+}
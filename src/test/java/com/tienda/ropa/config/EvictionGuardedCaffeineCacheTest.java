@@ -0,0 +1,68 @@
+package com.tienda.ropa.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EvictionGuardedCaffeineCacheTest {
+
+    private final EvictionGuardedCaffeineCache cache =
+            new EvictionGuardedCaffeineCache("test", Caffeine.newBuilder().build(), false);
+
+    @Test
+    void putAfterMissIsKept() {
+        assertThat(cache.get(1L)).isNull();
+        cache.put(1L, "v1");
+
+        assertThat(cache.get(1L, String.class)).isEqualTo("v1");
+    }
+
+    @Test
+    void valueReadBeforeEvictionIsNotCached() {
+        // El lector falla y carga la fila vieja; la escritura confirma y desaloja
+        assertThat(cache.get(1L)).isNull();
+        cache.evict(1L);
+        cache.put(1L, "viejo");
+
+        assertThat(cache.get(1L)).isNull();
+    }
+
+    @Test
+    void clearAlsoDiscardsPendingPut() {
+        assertThat(cache.get(1L)).isNull();
+        cache.clear();
+        cache.put(1L, "viejo");
+
+        assertThat(cache.get(1L)).isNull();
+    }
+
+    @Test
+    void putForAnotherKeyIsNotAffected() {
+        assertThat(cache.get(1L)).isNull();
+        cache.evict(1L);
+        cache.put(2L, "v2");
+
+        assertThat(cache.get(2L, String.class)).isEqualTo("v2");
+    }
+
+    @Test
+    void evictionOfAnotherKeyDoesNotDiscardTheFill() {
+        // Checkout desalojando otros productos mientras se rellena uno muy leído
+        assertThat(cache.get(1L)).isNull();
+        cache.evict(2L);
+        cache.evict(3L);
+        cache.put(1L, "v1");
+
+        assertThat(cache.get(1L, String.class)).isEqualTo("v1");
+    }
+
+    @Test
+    void missAfterEvictionCanBeCached() {
+        cache.evict(1L);
+        assertThat(cache.get(1L)).isNull();
+        cache.put(1L, "nuevo");
+
+        assertThat(cache.get(1L, String.class)).isEqualTo("nuevo");
+    }
+}
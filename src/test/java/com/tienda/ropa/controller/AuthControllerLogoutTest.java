@@ -0,0 +1,85 @@
+package com.tienda.ropa.controller;
+
+import com.tienda.ropa.dto.RefreshTokenRequest;
+import com.tienda.ropa.service.RefreshTokenService;
+import com.tienda.ropa.service.TokenRevocationService;
+import com.tienda.ropa.service.UserService;
+import com.tienda.ropa.util.JwtUtil;
+import com.tienda.ropa.util.VerifiedToken;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationManager;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthControllerLogoutTest {
+
+    private final JwtUtil jwtUtil = mock(JwtUtil.class);
+    private final TokenRevocationService tokenRevocationService = mock(TokenRevocationService.class);
+    private final RefreshTokenService refreshTokenService = mock(RefreshTokenService.class);
+    private final AuthController controller = new AuthController(
+            mock(AuthenticationManager.class), mock(UserService.class), jwtUtil, tokenRevocationService, refreshTokenService);
+
+    private static RefreshTokenRequest refresh(String token) {
+        RefreshTokenRequest request = new RefreshTokenRequest();
+        request.setRefreshToken(token);
+        return request;
+    }
+
+    @Test
+    void refreshTokenAloneRevokesItsFamily() {
+        ResponseEntity<?> response = controller.logout(null, refresh("rt"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        verify(refreshTokenService).revoke("rt", null);
+        verify(tokenRevocationService, never()).revoke(any());
+    }
+
+    @Test
+    void expiredAccessTokenWithRefreshTokenStillLogsOut() {
+        when(jwtUtil.verify("expirado")).thenThrow(new RuntimeException("JWT expired"));
+
+        ResponseEntity<?> response = controller.logout("Bearer expirado", refresh("rt"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        verify(refreshTokenService).revoke("rt", null);
+    }
+
+    @Test
+    void validAccessTokenRevokesBothAndChecksOwner() {
+        VerifiedToken verified = new VerifiedToken("jti", "ana", 7L, List.of("ROLE_USER"),
+                Instant.now(), Instant.now().plusSeconds(60));
+        when(jwtUtil.verify("valido")).thenReturn(verified);
+
+        ResponseEntity<?> response = controller.logout("Bearer valido", refresh("rt"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        verify(tokenRevocationService).revoke(verified);
+        verify(refreshTokenService).revoke("rt", 7L);
+    }
+
+    @Test
+    void invalidAccessTokenWithoutRefreshTokenIsRejected() {
+        when(jwtUtil.verify("malo")).thenThrow(new RuntimeException("firma inválida"));
+
+        ResponseEntity<?> response = controller.logout("Bearer malo", null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        verify(refreshTokenService, never()).revoke(anyString(), any());
+    }
+
+    @Test
+    void nothingToRevokeIsBadRequest() {
+        assertThat(controller.logout(null, null).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,129 @@
+package com.tienda.ropa.repository;
+
+import com.tienda.ropa.dto.BulkCategoryAssignmentResultDto;
+import com.tienda.ropa.dto.ProductFilterDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Asignación y quita masiva de categorías contra PostgreSQL real (CTEs con ON CONFLICT).
+// Se omite si no hay Docker disponible.
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional
+class ProductRepositoryBulkCategoryTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long filterCategoryId;
+    private long targetCategoryId;
+    private long otherCategoryId;
+    private long secondaryOnlyProductId;
+
+    @BeforeEach
+    void setUp() {
+        filterCategoryId = insertCategory("Filtro");
+        targetCategoryId = insertCategory("Destino");
+        otherCategoryId = insertCategory("Otra");
+        insertProduct("Camisa", filterCategoryId);
+        insertProduct("Pantalón", filterCategoryId);
+        // Principal en otra categoría y secundaria en la del filtro
+        secondaryOnlyProductId = insertProduct("Chaqueta", otherCategoryId);
+        insertRelation(secondaryOnlyProductId, filterCategoryId, false);
+    }
+
+    @Test
+    void assignWithFilterCategoryTargetsRequestedCategory() {
+        BulkCategoryAssignmentResultDto result =
+                productRepository.assignCategoryBulk(targetCategoryId, null, filterByCategory(filterCategoryId));
+
+        assertThat(result.getMatched()).isEqualTo(3);
+        assertThat(result.getAffected()).isEqualTo(3);
+        assertThat(relations(targetCategoryId)).isEqualTo(3);
+        assertThat(productCount(targetCategoryId)).isEqualTo(3);
+        // La categoría del filtro no se toca
+        assertThat(relations(filterCategoryId)).isEqualTo(3);
+        assertThat(productCount(filterCategoryId)).isEqualTo(3);
+    }
+
+    @Test
+    void removeWithFilterCategoryKeepsFilterCategoryLinks() {
+        productRepository.assignCategoryBulk(targetCategoryId, null, filterByCategory(filterCategoryId));
+
+        BulkCategoryAssignmentResultDto result =
+                productRepository.removeCategoryBulk(targetCategoryId, null, filterByCategory(filterCategoryId));
+
+        assertThat(result.getMatched()).isEqualTo(3);
+        assertThat(result.getAffected()).isEqualTo(3);
+        assertThat(result.getSkippedPrimary()).isZero();
+        assertThat(relations(targetCategoryId)).isZero();
+        assertThat(productCount(targetCategoryId)).isZero();
+        // La relación secundaria con la categoría del filtro sigue existiendo
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM product_categories WHERE product_id = ? AND category_id = ?",
+                Long.class, secondaryOnlyProductId, filterCategoryId)).isEqualTo(1);
+        assertThat(productCount(filterCategoryId)).isEqualTo(3);
+    }
+
+    private ProductFilterDto filterByCategory(long categoryId) {
+        ProductFilterDto filter = new ProductFilterDto();
+        filter.setCategoryId(categoryId);
+        return filter;
+    }
+
+    private long insertCategory(String name) {
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO categories (name, active, created_at) VALUES (?, TRUE, LOCALTIMESTAMP) RETURNING id",
+                Long.class, name);
+    }
+
+    private long insertProduct(String name, long categoryId) {
+        long id = jdbcTemplate.queryForObject(
+                "INSERT INTO products (name, price, stock, active, category_id, created_at) " +
+                "VALUES (?, 10.00, 5, TRUE, ?, LOCALTIMESTAMP) RETURNING id",
+                Long.class, name, categoryId);
+        insertRelation(id, categoryId, true);
+        return id;
+    }
+
+    private void insertRelation(long productId, long categoryId, boolean primary) {
+        jdbcTemplate.update(
+                "INSERT INTO product_categories (product_id, category_id, is_primary, created_at) " +
+                "VALUES (?, ?, ?, LOCALTIMESTAMP)", productId, categoryId, primary);
+        jdbcTemplate.update("UPDATE categories SET product_count = product_count + 1 WHERE id = ?", categoryId);
+    }
+
+    private long relations(long categoryId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM product_categories WHERE category_id = ?", Long.class, categoryId);
+    }
+
+    private long productCount(long categoryId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT product_count FROM categories WHERE id = ?", Long.class, categoryId);
+    }
+}
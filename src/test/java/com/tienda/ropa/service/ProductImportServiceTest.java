@@ -0,0 +1,45 @@
+package com.tienda.ropa.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductImportServiceTest {
+
+    @Test
+    void decimalCommaIsNotDroppedAsGroupingSeparator() {
+        assertThat(ProductImportService.normalizeNumber("19,99")).isEqualTo("19.99");
+        assertThat(ProductImportService.normalizeNumber("$ 19,5")).isEqualTo("19.5");
+    }
+
+    @Test
+    void lastSeparatorIsDecimalWhenBothArePresent() {
+        assertThat(ProductImportService.normalizeNumber("1.234,56")).isEqualTo("1234.56");
+        assertThat(ProductImportService.normalizeNumber("1,234.56")).isEqualTo("1234.56");
+        assertThat(ProductImportService.normalizeNumber("1.234.567,8")).isEqualTo("1234567.8");
+    }
+
+    @Test
+    void repeatedSeparatorIsGrouping() {
+        assertThat(ProductImportService.normalizeNumber("1.234.567")).isEqualTo("1234567");
+        assertThat(ProductImportService.normalizeNumber("1,234,567")).isEqualTo("1234567");
+    }
+
+    @Test
+    void singleDotIsDecimal() {
+        assertThat(ProductImportService.normalizeNumber("19.99")).isEqualTo("19.99");
+        assertThat(ProductImportService.normalizeNumber("1.234")).isEqualTo("1.234");
+        assertThat(ProductImportService.normalizeNumber("25")).isEqualTo("25");
+    }
+
+    @Test
+    void ambiguousOrInconsistentSeparatorsAreRejected() {
+        assertThatThrownBy(() -> ProductImportService.normalizeNumber("1,234"))
+                .isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> ProductImportService.normalizeNumber("1,2,3"))
+                .isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> ProductImportService.normalizeNumber("1,234,5.00"))
+                .isInstanceOf(NumberFormatException.class);
+    }
+}
@@ -0,0 +1,82 @@
+package com.tienda.ropa.service;
+
+import com.tienda.ropa.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSearchIndexTest {
+
+    private static ProductSearchIndex indexOf(Object[]... rows) {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        when(productRepository.findActiveSearchableFields()).thenReturn(List.of(rows));
+        ProductSearchIndex index = new ProductSearchIndex(productRepository);
+        index.rebuild();
+        return index;
+    }
+
+    private static List<Long> ids(List<ProductSearchIndex.SearchHit> hits) {
+        return hits.stream().map(ProductSearchIndex.SearchHit::productId).toList();
+    }
+
+    @Test
+    void tokenizerSplitsOnPunctuationAndDropsStopwords() {
+        assertThat(ProductSearchIndex.tokenize("Camisa de algodón, talla-M (para niños)"))
+                .containsExactly("camisa", "algodon", "talla", "m", "ninos");
+        assertThat(ProductSearchIndex.tokenize("  ")).isEmpty();
+        assertThat(ProductSearchIndex.tokenize(null)).isEmpty();
+    }
+
+    @Test
+    void accentsAndCaseAreFolded() {
+        assertThat(ProductSearchIndex.tokenize("CAMIÓN Pingüino Año")).containsExactly("camion", "pinguino", "ano");
+
+        ProductSearchIndex index = indexOf(new Object[]{1L, "Pantalón vaquero", null});
+
+        assertThat(ids(index.search("pantalon"))).containsExactly(1L);
+        assertThat(ids(index.search("PANTALÓN"))).containsExactly(1L);
+    }
+
+    @Test
+    void prefixMatchesRankBelowExactMatches() {
+        ProductSearchIndex index = indexOf(
+                new Object[]{1L, "Camiseta básica", null},
+                new Object[]{2L, "Camisa de lino", null},
+                new Object[]{3L, "Pantalón", "Combina con cualquier camisa"});
+
+        assertThat(ids(index.search("camis"))).containsExactly(1L, 2L, 3L);
+        // Exacta en el nombre (3 × 2) antes que por prefijo en el nombre (3) y exacta en la descripción (1 × 2)
+        assertThat(ids(index.search("camisa"))).containsExactly(2L, 3L);
+        assertThat(index.search("camisa")).extracting(ProductSearchIndex.SearchHit::score).containsExactly(6, 2);
+        // Todos los términos deben coincidir
+        assertThat(ids(index.search("camisa lino"))).containsExactly(2L);
+    }
+
+    @Test
+    void queriesMadeOnlyOfStopwordsAreDetected() {
+        assertThat(ProductSearchIndex.onlyStopwords("de la")).isTrue();
+        assertThat(ProductSearchIndex.onlyStopwords("Sin")).isTrue();
+        assertThat(ProductSearchIndex.onlyStopwords("camisa de lino")).isFalse();
+        assertThat(ProductSearchIndex.onlyStopwords("")).isFalse();
+        assertThat(ProductSearchIndex.onlyStopwords("--")).isFalse();
+    }
+
+    @Test
+    void cursorSkipsUpToTheLastHitOfThePreviousPage() {
+        List<ProductSearchIndex.SearchHit> hits = List.of(
+                new ProductSearchIndex.SearchHit(4L, 6),
+                new ProductSearchIndex.SearchHit(9L, 6),
+                new ProductSearchIndex.SearchHit(2L, 3),
+                new ProductSearchIndex.SearchHit(5L, 1));
+
+        assertThat(ProductSearchIndex.positionAfter(hits, new ProductSearchIndex.SearchHit(9L, 6))).isEqualTo(2);
+        // El último resultado ya no coincide: se sigue desde donde iría en el orden
+        assertThat(ProductSearchIndex.positionAfter(hits, new ProductSearchIndex.SearchHit(7L, 6))).isEqualTo(1);
+        assertThat(ProductSearchIndex.positionAfter(hits, new ProductSearchIndex.SearchHit(1L, 2))).isEqualTo(3);
+        assertThat(ProductSearchIndex.positionAfter(hits, new ProductSearchIndex.SearchHit(5L, 1))).isEqualTo(4);
+    }
+}
@@ -0,0 +1,108 @@
+package com.tienda.ropa.service;
+
+import com.tienda.ropa.model.RefreshToken;
+import com.tienda.ropa.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenServiceTest {
+
+    private static final String SECRET = "clave-de-prueba-suficientemente-larga-para-hmac";
+
+    private final Map<String, RefreshToken> tokensByHash = new HashMap<>();
+    private final RefreshTokenRepository repository = mock(RefreshTokenRepository.class);
+
+    @BeforeEach
+    void setUp() {
+        when(repository.save(any(RefreshToken.class))).thenAnswer(invocation -> {
+            RefreshToken token = invocation.getArgument(0);
+            tokensByHash.put(token.getTokenHash(), token);
+            return token;
+        });
+        when(repository.findByTokenHashForUpdate(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(tokensByHash.get(invocation.<String>getArgument(0))));
+    }
+
+    private RefreshTokenService service(Duration grace) {
+        return new RefreshTokenService(repository, Duration.ofDays(30), grace, SECRET);
+    }
+
+    @Test
+    void retryWithinGraceReturnsTheSameSuccessor() {
+        RefreshTokenService service = service(Duration.ofSeconds(10));
+        String first = service.issue(7L);
+
+        RefreshTokenService.Rotation rotation = service.rotate(first);
+        RefreshTokenService.Rotation retry = service.rotate(first);
+
+        assertThat(retry.userId()).isEqualTo(7L);
+        assertThat(retry.refreshToken()).isEqualTo(rotation.refreshToken()).isNotEqualTo(first);
+        assertThat(tokensByHash).hasSize(2);
+        verify(repository, never()).revokeFamily(anyString(), any());
+    }
+
+    @Test
+    void successorKeepsRotatingAfterGraceRetry() {
+        RefreshTokenService service = service(Duration.ofSeconds(10));
+        String first = service.issue(7L);
+        String second = service.rotate(first).refreshToken();
+        service.rotate(first);
+
+        String third = service.rotate(second).refreshToken();
+
+        assertThat(third).isNotEqualTo(second);
+        assertThat(tokensByHash).hasSize(3);
+    }
+
+    @Test
+    void reuseAfterSuccessorWasUsedRevokesTheFamily() {
+        RefreshTokenService service = service(Duration.ofSeconds(10));
+        String first = service.issue(7L);
+        String second = service.rotate(first).refreshToken();
+        service.rotate(second);
+
+        assertThatThrownBy(() -> service.rotate(first)).isInstanceOf(IllegalArgumentException.class);
+        verify(repository).revokeFamily(eq(tokensByHash.values().iterator().next().getFamilyId()), any());
+    }
+
+    @Test
+    void reuseWithoutGraceRevokesTheFamily() {
+        RefreshTokenService service = service(Duration.ZERO);
+        String first = service.issue(7L);
+        service.rotate(first);
+
+        assertThatThrownBy(() -> service.rotate(first)).isInstanceOf(IllegalArgumentException.class);
+        verify(repository).revokeFamily(anyString(), any());
+    }
+
+    @Test
+    void revokedTokenIsRejectedEvenWithinGrace() {
+        RefreshTokenService service = service(Duration.ofSeconds(10));
+        String first = service.issue(7L);
+        service.rotate(first);
+        tokensByHash.values().forEach(token -> token.setRevokedAt(token.getCreatedAt()));
+
+        assertThatThrownBy(() -> service.rotate(first)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void unknownTokenIsRejected() {
+        assertThatThrownBy(() -> service(Duration.ofSeconds(10)).rotate("desconocido"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
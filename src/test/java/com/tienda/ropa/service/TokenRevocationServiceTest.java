@@ -0,0 +1,100 @@
+package com.tienda.ropa.service;
+
+import com.tienda.ropa.repository.RefreshTokenRepository;
+import com.tienda.ropa.repository.RevokedTokenRepository;
+import com.tienda.ropa.repository.TokenWatermarkRepository;
+import com.tienda.ropa.util.VerifiedToken;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class TokenRevocationServiceTest {
+
+    private final TokenRevocationService service = new TokenRevocationService(
+            mock(RevokedTokenRepository.class), mock(TokenWatermarkRepository.class),
+            mock(RefreshTokenRepository.class), 86_400_000L, 1_000L);
+
+    private static VerifiedToken token(String tokenId, Long userId, Instant issuedAt) {
+        return new VerifiedToken(tokenId, "ana", userId, List.of("ROLE_USER"), issuedAt, issuedAt.plusSeconds(3600));
+    }
+
+    @Test
+    void tokenIssuedBeforeTheRevocationIsRevoked() {
+        Instant justBefore = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+        service.revokeAllForUser(7L);
+
+        assertThat(service.isRevoked(token("a", 7L, justBefore))).isTrue();
+        assertThat(service.isRevoked(token("b", 7L, justBefore.minusSeconds(60)))).isTrue();
+    }
+
+    @Test
+    void tokenIssuedRightAfterTheRevocationIsAccepted() {
+        service.revokeAllForUser(7L);
+        // Mismo segundo que la revocación, pero emitido después (login tras cambiar la contraseña)
+        Instant justAfter = Instant.now().truncatedTo(ChronoUnit.MILLIS).plusMillis(1);
+
+        assertThat(service.isRevoked(token("a", 7L, justAfter))).isFalse();
+    }
+
+    @Test
+    void revocationIsAppliedOnlyAfterCommit() {
+        Instant issuedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.revokeAllForUser(7L);
+            service.revoke(token("revocado", 8L, issuedAt));
+
+            assertThat(service.isRevoked(token("a", 7L, issuedAt))).isFalse();
+            assertThat(service.isRevoked(token("revocado", 8L, issuedAt))).isFalse();
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+
+            assertThat(service.isRevoked(token("a", 7L, issuedAt))).isTrue();
+            assertThat(service.isRevoked(token("revocado", 8L, issuedAt))).isTrue();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void rolledBackRevocationLeavesNoTrace() {
+        Instant issuedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.revokeAllForUser(7L);
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(service.isRevoked(token("a", 7L, issuedAt))).isFalse();
+    }
+
+    @Test
+    void watermarkOnlyAppliesToItsUser() {
+        Instant issuedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+        service.revokeAllForUser(7L);
+
+        assertThat(service.isRevoked(token("a", 8L, issuedAt))).isFalse();
+    }
+
+    @Test
+    void revokedTokenIdIsRejectedAndOthersAreNot() {
+        Instant issuedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+        service.revoke(token("revocado", 7L, issuedAt));
+
+        assertThat(service.isRevoked(token("revocado", 7L, issuedAt))).isTrue();
+        assertThat(service.isRevoked(token("otro", 7L, issuedAt))).isFalse();
+    }
+}
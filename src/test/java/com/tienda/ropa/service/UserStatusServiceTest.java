@@ -0,0 +1,57 @@
+package com.tienda.ropa.service;
+
+import com.tienda.ropa.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserStatusServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UserStatusService service = new UserStatusService(userRepository, Duration.ofMinutes(1), 100);
+
+    private void givenStatus(boolean enabled, boolean locked) {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{enabled, locked});
+        when(userRepository.findStatusById(7L)).thenReturn(rows);
+    }
+
+    @Test
+    void evictOutsideATransactionIsImmediate() {
+        givenStatus(true, false);
+        assertThat(service.isActive(7L)).isTrue();
+
+        givenStatus(true, true);
+        service.evict(7L);
+
+        assertThat(service.isActive(7L)).isFalse();
+    }
+
+    @Test
+    void evictInsideATransactionWaitsForTheCommit() {
+        givenStatus(true, false);
+        assertThat(service.isActive(7L)).isTrue();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.evict(7L);
+            // Una lectura concurrente antes del commit aún ve el estado anterior
+            assertThat(service.isActive(7L)).isTrue();
+
+            givenStatus(true, true);
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(service.isActive(7L)).isFalse();
+    }
+}
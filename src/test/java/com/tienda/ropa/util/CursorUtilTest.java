@@ -0,0 +1,60 @@
+package com.tienda.ropa.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorUtilTest {
+
+    private static String rawCursor(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void idOnlyCursorRoundTrips() {
+        CursorUtil.Cursor cursor = CursorUtil.decode(CursorUtil.encode(42L));
+
+        assertThat(cursor.id()).isEqualTo(42L);
+        assertThat(cursor.sortKey()).isNull();
+    }
+
+    @Test
+    void sortKeysRoundTrip() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 10, 30, 15, 123_000_000);
+
+        assertThat(CursorUtil.decode(CursorUtil.encode(new BigDecimal("19.99"), 7L)).sortKeyAsDecimal())
+                .isEqualByComparingTo("19.99");
+        assertThat(CursorUtil.decode(CursorUtil.encode(3, 7L)).sortKeyAsInt()).isEqualTo(3);
+        assertThat(CursorUtil.decode(CursorUtil.encode(createdAt, 7L)).sortKeyAsDateTime()).isEqualTo(createdAt);
+    }
+
+    @Test
+    void cursorIsUrlSafe() {
+        assertThat(CursorUtil.encode("a/b+c?d", Long.MAX_VALUE)).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void tamperedCursorsAreRejected() {
+        assertThatThrownBy(() -> CursorUtil.decode("%%no-es-base64%%")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CursorUtil.decode(rawCursor("sin-separador"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CursorUtil.decode(rawCursor("10|abc"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CursorUtil.decode(rawCursor("|"))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void sortKeyOfTheWrongTypeIsRejected() {
+        CursorUtil.Cursor idOnly = CursorUtil.decode(CursorUtil.encode(5L));
+        CursorUtil.Cursor notADate = CursorUtil.decode(rawCursor("ayer|5"));
+
+        assertThatThrownBy(idOnly::sortKeyAsDecimal).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(idOnly::sortKeyAsDateTime).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(notADate::sortKeyAsDateTime).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(notADate::sortKeyAsDecimal).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,37 @@
+package com.tienda.ropa.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilTest {
+
+    private JwtUtil jwtUtil() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", "clave-de-prueba-suficientemente-larga-para-hs256");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedTokenCacheSize", 100L);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    @Test
+    void issuedAtKeepsMillisecondPrecision() {
+        JwtUtil jwtUtil = jwtUtil();
+        Instant before = Instant.ofEpochMilli(System.currentTimeMillis());
+
+        String token = jwtUtil.generateToken(
+                new User("ana", "x", List.of(new SimpleGrantedAuthority("ROLE_USER"))), 7L);
+        VerifiedToken verified = jwtUtil.verify(token);
+
+        assertThat(verified.issuedAt()).isBetween(before, Instant.ofEpochMilli(System.currentTimeMillis()));
+        assertThat(verified.userId()).isEqualTo(7L);
+        assertThat(verified.roles()).containsExactly("ROLE_USER");
+    }
+}